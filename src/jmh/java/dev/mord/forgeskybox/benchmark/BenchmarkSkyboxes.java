@@ -0,0 +1,92 @@
+package dev.mord.forgeskybox.benchmark;
+
+import com.mojang.blaze3d.vertex.PoseStack;
+import com.mojang.math.Matrix4f;
+import dev.mord.forgeskybox.mixin.skybox.WorldRendererAccess;
+import dev.mord.forgeskybox.skyboxes.AbstractSkybox;
+import dev.mord.forgeskybox.skyboxes.SkyboxType;
+import dev.mord.forgeskybox.util.EnvironmentSnapshot;
+import dev.mord.forgeskybox.util.object.*;
+import net.minecraft.client.Camera;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.level.biome.Biome;
+
+/**
+ * Synthetic skyboxes and environments shared by the benchmarks.
+ */
+public final class BenchmarkSkyboxes {
+    public static final ResourceLocation OVERWORLD = new ResourceLocation("overworld");
+    public static final ResourceLocation PLAINS = new ResourceLocation("plains");
+
+    private BenchmarkSkyboxes() {
+    }
+
+    /**
+     * An environment every {@link Complexity} matches, so all conditions are evaluated.
+     */
+    public static EnvironmentSnapshot environment(long dayTime) {
+        return new EnvironmentSnapshot.Builder()
+                .dayTime(dayTime)
+                .position(10.0D, 70.0D, -10.0D)
+                .world(OVERWORLD)
+                .biome(PLAINS, Biome.Precipitation.RAIN)
+                .build();
+    }
+
+    public static NoOpSkybox create(int index, Complexity complexity, ResourceLocation world) {
+        // spread the fade windows over the day so skyboxes fade in and out at different times
+        int start = (index * 997) % Fade.DAY_LENGTH;
+        Fade fade = new Fade(start, start + 1000, start + 6000, start + 7000, false);
+        DefaultProperties properties = new DefaultProperties.Builder().fade(fade).transitionSpeed(0.05F).build();
+        return new NoOpSkybox(properties, complexity.conditions(world), Decorations.DEFAULT);
+    }
+
+    public static NoOpSkybox create(int index, Complexity complexity) {
+        return create(index, complexity, OVERWORLD);
+    }
+
+    public enum Complexity {
+        NONE,
+        WORLD,
+        FULL;
+
+        public Conditions conditions(ResourceLocation world) {
+            return switch (this) {
+                case NONE -> Conditions.NO_CONDITIONS;
+                case WORLD -> new Conditions.Builder().worlds(world).build();
+                case FULL -> {
+                    Conditions.Builder builder = new Conditions.Builder()
+                            .worlds(world)
+                            .weather(Weather.CLEAR, Weather.RAIN)
+                            .xRanges(new MinMaxEntry(-1000, 1000))
+                            .zRanges(new MinMaxEntry(-1000, 1000));
+                    for (int i = 0; i < 16; i++) {
+                        builder.yRanges(new MinMaxEntry(i * 16 - 64, i * 16 - 56));
+                    }
+                    for (int i = 0; i < 15; i++) {
+                        builder.biomes(new ResourceLocation("benchmark", "biome_" + i));
+                    }
+                    yield builder.biomes(PLAINS).build();
+                }
+            };
+        }
+    }
+
+    /**
+     * A skybox that renders nothing, to measure everything around rendering.
+     */
+    public static class NoOpSkybox extends AbstractSkybox {
+        public NoOpSkybox(DefaultProperties properties, Conditions conditions, Decorations decorations) {
+            super(properties, conditions, decorations);
+        }
+
+        @Override
+        public void render(WorldRendererAccess worldRendererAccess, PoseStack matrices, Matrix4f matrix4f, float tickDelta, Camera camera, boolean thickFog) {
+        }
+
+        @Override
+        public SkyboxType<? extends AbstractSkybox> getType() {
+            return SkyboxType.MONO_COLOR_SKYBOX;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package dev.mord.forgeskybox.benchmark;
+
+import dev.mord.forgeskybox.SkyboxManager;
+import dev.mord.forgeskybox.util.EnvironmentSnapshot;
+import net.minecraft.resources.ResourceLocation;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of planning a frame with a fixed number of skyboxes in the current world
+ * while skyboxes for other worlds are added. The cost should stay flat.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PerWorldIndexBenchmark {
+    private static final int IN_WORLD_SKYBOXES = 100;
+
+    @Param({"0", "100", "1000", "10000"})
+    public int offWorldSkyboxCount;
+
+    @Param({"WORLD", "FULL"})
+    public BenchmarkSkyboxes.Complexity complexity;
+
+    private SkyboxManager manager;
+    private EnvironmentSnapshot[] environments;
+    private int frame;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.manager = SkyboxManager.getInstance();
+        this.manager.clearSkyboxes();
+        for (int i = 0; i < IN_WORLD_SKYBOXES; i++) {
+            this.manager.addSkybox(BenchmarkSkyboxes.create(i, this.complexity));
+        }
+        // one skybox per world, the worst case for the buckets
+        for (int i = 0; i < this.offWorldSkyboxCount; i++) {
+            this.manager.addSkybox(BenchmarkSkyboxes.create(i, this.complexity, new ResourceLocation("benchmark", "world_" + i)));
+        }
+        this.environments = new EnvironmentSnapshot[2400];
+        for (int i = 0; i < this.environments.length; i++) {
+            this.environments[i] = BenchmarkSkyboxes.environment(i * 10L);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.manager.clearSkyboxes();
+    }
+
+    @Benchmark
+    public float planFrame() {
+        this.frame = (this.frame + 1) % this.environments.length;
+        return this.manager.planFrame(this.environments[this.frame], 0.5F).getTotalAlpha();
+    }
+}
@@ -0,0 +1,82 @@
+package dev.mord.forgeskybox.benchmark;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.mojang.serialization.JsonOps;
+import dev.mord.forgeskybox.skyboxes.MonoColorSkybox;
+import dev.mord.forgeskybox.skyboxes.textured.SquareTexturedSkybox;
+import dev.mord.forgeskybox.util.object.Blend;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the load-time cost of decoding skyboxes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SkyboxDecodeBenchmark {
+    private static final String PROPERTIES = """
+            "properties": {
+                "fade": {"startFadeIn": 1000, "endFadeIn": 2000, "startFadeOut": 10000, "endFadeOut": 11000},
+                "rotation": {"axis": [0.0, 0.0, 90.0], "static": [10.0, 0.0, 0.0]},
+                "shouldRotate": true
+            },
+            "conditions": {
+                "worlds": ["minecraft:overworld"],
+                "biomes": ["minecraft:plains", "minecraft:desert"],
+                "weather": ["clear"],
+                "yRanges": [{"min": 0.0, "max": 64.0}, {"min": 100.0, "max": 320.0}]
+            }""";
+
+    private JsonObject squareTextured;
+    private JsonObject monoColor;
+
+    @Setup
+    public void setup() {
+        this.squareTextured = JsonParser.parseString("""
+                {
+                    "schemaVersion": 2,
+                    "type": "square-textured",
+                    %s,
+                    "blend": {"type": "add"},
+                    "textures": {
+                        "north": "forgeskybox:sky/north.png",
+                        "south": "forgeskybox:sky/south.png",
+                        "east": "forgeskybox:sky/east.png",
+                        "west": "forgeskybox:sky/west.png",
+                        "top": "forgeskybox:sky/top.png",
+                        "bottom": "forgeskybox:sky/bottom.png"
+                    }
+                }""".formatted(PROPERTIES)).getAsJsonObject();
+        this.monoColor = JsonParser.parseString("""
+                {
+                    "schemaVersion": 2,
+                    "type": "monocolor",
+                    %s,
+                    "color": {"red": 0.2, "green": 0.3, "blue": 0.9}
+                }""".formatted(PROPERTIES)).getAsJsonObject();
+    }
+
+    @Benchmark
+    public SquareTexturedSkybox decodeSquareTextured() {
+        return SquareTexturedSkybox.CODEC.decode(JsonOps.INSTANCE, this.squareTextured).getOrThrow(false, System.err::println).getFirst();
+    }
+
+    @Benchmark
+    public MonoColorSkybox decodeMonoColor() {
+        return MonoColorSkybox.CODEC.decode(JsonOps.INSTANCE, this.monoColor).getOrThrow(false, System.err::println).getFirst();
+    }
+
+    @Benchmark
+    public Blend createNamedBlend() {
+        return new Blend("add", 0, 0, 0);
+    }
+
+    @Benchmark
+    public Blend createCustomBlend() {
+        // GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA, GL_FUNC_ADD
+        return new Blend("", 770, 771, 32774);
+    }
+}
@@ -0,0 +1,67 @@
+package dev.mord.forgeskybox.benchmark;
+
+import dev.mord.forgeskybox.SkyboxManager;
+import dev.mord.forgeskybox.skyboxes.AbstractSkybox;
+import dev.mord.forgeskybox.util.EnvironmentSnapshot;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per-frame cost of evaluating and ordering skyboxes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SkyboxEvaluationBenchmark {
+    @Param({"1", "10", "100", "1000", "10000"})
+    public int skyboxCount;
+
+    @Param({"NONE", "WORLD", "FULL"})
+    public BenchmarkSkyboxes.Complexity complexity;
+
+    private AbstractSkybox[] skyboxes;
+    private SkyboxManager manager;
+    private EnvironmentSnapshot[] environments;
+    private int frame;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.skyboxes = new AbstractSkybox[this.skyboxCount];
+        this.manager = SkyboxManager.getInstance();
+        this.manager.clearSkyboxes();
+        for (int i = 0; i < this.skyboxCount; i++) {
+            this.skyboxes[i] = BenchmarkSkyboxes.create(i, this.complexity);
+            this.manager.addSkybox(this.skyboxes[i]);
+        }
+        // a full day in steps of 10 ticks, so fades and layer order keep changing
+        this.environments = new EnvironmentSnapshot[2400];
+        for (int i = 0; i < this.environments.length; i++) {
+            this.environments[i] = BenchmarkSkyboxes.environment(i * 10L);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.manager.clearSkyboxes();
+    }
+
+    private EnvironmentSnapshot nextEnvironment() {
+        this.frame = (this.frame + 1) % this.environments.length;
+        return this.environments[this.frame];
+    }
+
+    @Benchmark
+    public void updateAlpha(Blackhole blackhole) {
+        EnvironmentSnapshot environment = this.nextEnvironment();
+        for (AbstractSkybox skybox : this.skyboxes) {
+            blackhole.consume(skybox.updateAlpha(environment));
+        }
+    }
+
+    @Benchmark
+    public float planFrame() {
+        return this.manager.planFrame(this.nextEnvironment(), 0.5F).getTotalAlpha();
+    }
+}
@@ -7,7 +7,9 @@ import dev.mord.forgeskybox.skyboxes.LegacyDeserializer;
 import dev.mord.forgeskybox.skyboxes.SkyboxType;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.fml.ModLoadingContext;
 import net.minecraftforge.fml.common.Mod;
+import net.minecraftforge.fml.config.ModConfig;
 import net.minecraftforge.registries.DeferredRegister;
 import net.minecraftforge.registries.IForgeRegistry;
 import net.minecraftforge.registries.NewRegistryEvent;
@@ -20,6 +22,10 @@ public class FabricSkyBoxesClient {
     public static final String MODID = "forgeskybox";
     private static Logger LOGGER;
 
+    public FabricSkyBoxesClient() {
+        ModLoadingContext.get().registerConfig(ModConfig.Type.CLIENT, SkyboxConfig.SPEC);
+    }
+
     public static Logger getLogger() {
         if (LOGGER == null) {
             LOGGER = LogManager.getLogger("ForgeSkybox");
@@ -0,0 +1,211 @@
+package dev.mord.forgeskybox;
+
+import dev.mord.forgeskybox.skyboxes.AbstractSkybox;
+import dev.mord.forgeskybox.skyboxes.textured.TexturedSkybox;
+import dev.mord.forgeskybox.util.object.Blend;
+import dev.mord.forgeskybox.util.object.RGBA;
+import net.minecraft.resources.ResourceLocation;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Everything the skybox pass needs for one frame, computed once by {@link SkyboxManager#planFrame(float)}
+ * and consumed by the sky and fog mixins.
+ */
+public class FramePlan {
+    private static final Comparator<ResourceLocation> SORT_TEXTURE_ORDER = Comparator.nullsFirst(Comparator.naturalOrder());
+    private AbstractSkybox[] layers = new AbstractSkybox[0];
+    private float[] alphas = new float[0];
+    private int layerCount;
+    private int firstVisibleLayer;
+    private boolean needsSkyFog = true;
+    private float totalAlpha;
+    private boolean changeFog;
+    private float fogRed;
+    private float fogGreen;
+    private float fogBlue;
+    private boolean renderSunriseAndSet = true;
+
+    void reset() {
+        Arrays.fill(this.layers, 0, this.layerCount, null);
+        this.layerCount = 0;
+        this.firstVisibleLayer = 0;
+        this.needsSkyFog = true;
+        this.totalAlpha = 0f;
+        this.changeFog = false;
+        this.renderSunriseAndSet = true;
+    }
+
+    /**
+     * Sizes the plan for the given amount of skyboxes, so planning a frame never allocates.
+     */
+    void ensureCapacity(int capacity) {
+        if (this.layers.length < capacity) {
+            this.layers = Arrays.copyOf(this.layers, capacity);
+            this.alphas = Arrays.copyOf(this.alphas, capacity);
+        }
+    }
+
+    void addLayer(AbstractSkybox skybox) {
+        this.alphas[this.layerCount] = skybox.alpha;
+        this.layers[this.layerCount++] = skybox;
+    }
+
+    /**
+     * Reorders runs of consecutive layers whose blends commute so layers with the same state follow each other.
+     * The blended result is the same, but the layers can share their state setup.
+     */
+    void sortByRenderState() {
+        // the first layer draws the decorations, it stays first
+        int start = 1;
+        while (start < this.layerCount) {
+            Blend.Group group = blendGroup(this.layers[start]);
+            int end = start + 1;
+            if (group != Blend.Group.NONE) {
+                while (end < this.layerCount && blendGroup(this.layers[end]) == group) {
+                    end++;
+                }
+                // stable insertion sort, runs are short
+                for (int i = start + 1; i < end; i++) {
+                    AbstractSkybox layer = this.layers[i];
+                    float alpha = this.alphas[i];
+                    int j = i - 1;
+                    while (j >= start && compareState(this.layers[j], layer) > 0) {
+                        this.layers[j + 1] = this.layers[j];
+                        this.alphas[j + 1] = this.alphas[j];
+                        j--;
+                    }
+                    this.layers[j + 1] = layer;
+                    this.alphas[j + 1] = alpha;
+                }
+            }
+            start = end;
+        }
+    }
+
+    /**
+     * Finds the last layer covering the whole sky, the layers before it are hidden and skipped.
+     */
+    void cullHiddenLayers() {
+        this.firstVisibleLayer = 0;
+        this.needsSkyFog = true;
+        for (int i = this.layerCount - 1; i > 0; i--) {
+            if (this.layers[i] instanceof TexturedSkybox textured && textured.coversSky(this.alphas[i])) {
+                this.firstVisibleLayer = i;
+                break;
+            }
+        }
+        if (this.firstVisibleLayer > 0) {
+            // textured layers don't use fog and the decorations are hidden with the first layer
+            this.needsSkyFog = false;
+            for (int i = this.firstVisibleLayer; i < this.layerCount; i++) {
+                if (!(this.layers[i] instanceof TexturedSkybox)) {
+                    this.needsSkyFog = true;
+                    break;
+                }
+            }
+        }
+    }
+
+    private static Blend.Group blendGroup(AbstractSkybox layer) {
+        return layer instanceof TexturedSkybox textured && textured.getBlend() != null ? textured.getBlend().getGroup() : Blend.Group.NONE;
+    }
+
+    /**
+     * Orders layers of one run by blend state, then by type as each type sets its own shader, then by texture.
+     */
+    private static int compareState(AbstractSkybox first, AbstractSkybox second) {
+        TexturedSkybox firstTextured = (TexturedSkybox) first;
+        TexturedSkybox secondTextured = (TexturedSkybox) second;
+        int compare = Long.compare(firstTextured.getBlend().getStateKey(), secondTextured.getBlend().getStateKey());
+        if (compare != 0) {
+            return compare;
+        }
+        // names and ids rather than hash codes, so the order is the same on every run
+        compare = first.getType().getName().compareTo(second.getType().getName());
+        if (compare != 0) {
+            return compare;
+        }
+        return SORT_TEXTURE_ORDER.compare(firstTextured.getSortTexture(), secondTextured.getSortTexture());
+    }
+
+    void addAlpha(float alpha) {
+        this.totalAlpha += alpha;
+    }
+
+    void setFogColor(RGBA fogColors) {
+        this.changeFog = true;
+        this.fogRed = fogColors.getRed();
+        this.fogGreen = fogColors.getGreen();
+        this.fogBlue = fogColors.getBlue();
+    }
+
+    void disableSunriseAndSet() {
+        this.renderSunriseAndSet = false;
+    }
+
+    /**
+     * @return The active layers in render order: by descending alpha, with layers whose blends commute grouped by render state.
+     */
+    public List<AbstractSkybox> getLayers() {
+        return Collections.unmodifiableList(Arrays.asList(this.layers).subList(0, this.layerCount));
+    }
+
+    public int getLayerCount() {
+        return this.layerCount;
+    }
+
+    public AbstractSkybox getLayer(int index) {
+        Objects.checkIndex(index, this.layerCount);
+        return this.layers[index];
+    }
+
+    public float getAlpha(int index) {
+        return this.alphas[index];
+    }
+
+    /**
+     * @return The index of the first layer to render, the ones before it are hidden.
+     */
+    public int getFirstVisibleLayer() {
+        return this.firstVisibleLayer;
+    }
+
+    /**
+     * @return Whether the visible layers need the fog of the sky to be set up.
+     */
+    public boolean needsSkyFog() {
+        return this.needsSkyFog;
+    }
+
+    /**
+     * @return The sum of the alphas of all skyboxes, not only the active layers.
+     */
+    public float getTotalAlpha() {
+        return this.totalAlpha;
+    }
+
+    public boolean shouldChangeFog() {
+        return this.changeFog;
+    }
+
+    public float getFogRed() {
+        return this.fogRed;
+    }
+
+    public float getFogGreen() {
+        return this.fogGreen;
+    }
+
+    public float getFogBlue() {
+        return this.fogBlue;
+    }
+
+    public boolean shouldRenderSunriseAndSet() {
+        return this.renderSunriseAndSet;
+    }
+}
@@ -0,0 +1,128 @@
+package dev.mord.forgeskybox;
+
+import net.minecraftforge.common.ForgeConfigSpec;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+import net.minecraftforge.fml.event.config.ModConfigEvent;
+
+/**
+ * The client config of the mod. Values are baked into plain fields when the config
+ * is loaded so the render path never touches the config spec, and so the defaults
+ * apply when the mod runs without a config (e.g. benchmarks).
+ */
+@Mod.EventBusSubscriber(modid = FabricSkyBoxesClient.MODID, bus = Mod.EventBusSubscriber.Bus.MOD)
+public class SkyboxConfig {
+    public static final ForgeConfigSpec SPEC;
+    private static final ForgeConfigSpec.EnumValue<EvaluationMode> EVALUATION_MODE;
+    private static final ForgeConfigSpec.BooleanValue STITCH_FACES;
+    private static final ForgeConfigSpec.BooleanValue ANIMATION_TEXTURE_ARRAYS;
+    private static final ForgeConfigSpec.BooleanValue COMPOSITE_STATIC_LAYERS;
+    private static final ForgeConfigSpec.IntValue COMPOSITE_BUDGET;
+    private static final ForgeConfigSpec.BooleanValue STREAM_ANIMATIONS;
+    private static final ForgeConfigSpec.IntValue STREAM_FRAMES_AHEAD;
+    private static final ForgeConfigSpec.IntValue STREAM_RESIDENT_FRAMES;
+    private static final ForgeConfigSpec.IntValue STREAM_UPLOAD_BUDGET;
+    private static final ForgeConfigSpec.BooleanValue LAZY_TEXTURES;
+    private static final ForgeConfigSpec.IntValue TEXTURE_LOOKAHEAD;
+    private static final ForgeConfigSpec.IntValue TEXTURE_IDLE;
+
+    public static EvaluationMode evaluationMode = EvaluationMode.FRAME;
+    public static boolean stitchFaces = false;
+    public static boolean animationTextureArrays = false;
+    public static boolean compositeStaticLayers = false;
+    public static int compositeBudgetMegabytes = 24;
+    public static boolean streamAnimations = false;
+    public static int streamFramesAhead = 8;
+    public static int streamResidentFrames = 16;
+    public static int streamUploadBudgetMicros = 2000;
+    public static boolean lazyTextures = false;
+    public static int textureLookaheadTicks = 1200;
+    public static int textureIdleTicks = 600;
+
+    static {
+        ForgeConfigSpec.Builder builder = new ForgeConfigSpec.Builder();
+        builder.push("evaluation");
+        EVALUATION_MODE = builder
+                .comment("When skybox conditions and alphas are evaluated.",
+                        "FRAME evaluates them every frame and transitionSpeed is applied per frame.",
+                        "TICK evaluates them once per client tick and interpolates the alpha in between frames,",
+                        "transitionSpeed is then applied per tick so fades take the same time at any frame rate.")
+                .defineEnum("conditionEvaluation", EvaluationMode.FRAME);
+        builder.pop();
+        builder.push("textures");
+        STITCH_FACES = builder
+                .comment("Stitches the six face textures of square textured skyboxes into one texture when skyboxes are loaded,",
+                        "so the whole cube is drawn with a single bind and draw call. All faces must have the same size.")
+                .define("stitchFaces", false);
+        ANIMATION_TEXTURE_ARRAYS = builder
+                .comment("Uploads every frame of animated skyboxes into one texture array and selects the frame in the shader,",
+                        "instead of binding the six textures of each frame. Needed to crossfade interpolated animations.",
+                        "All faces of all frames must have the same size.")
+                .define("animationTextureArrays", false);
+        builder.pop();
+        builder.push("compositing");
+        COMPOSITE_STATIC_LAYERS = builder
+                .comment("Renders the visible layers into one cube map once they stop changing and draws only that cube map",
+                        "until a layer fades, animates or rotates. Only used when the bottom layer is opaque and covers the sky,",
+                        "and no sun, moon or stars are drawn in between the layers.")
+                .define("compositeStaticLayers", false);
+        COMPOSITE_BUDGET = builder
+                .comment("The video memory the composite cube map may use, in megabytes. The face resolution is the largest",
+                        "power of two up to 2048 that fits, compositing is disabled if not even 64 fits.")
+                .defineInRange("compositeBudgetMegabytes", 24, 0, 512);
+        builder.pop();
+        builder.push("streaming");
+        STREAM_ANIMATIONS = builder
+                .comment("Decodes the frames of animated skyboxes in the background shortly before they are shown and keeps",
+                        "only a few of them in video memory, for animations too long to load at once. Takes precedence over",
+                        "animationTextureArrays. All faces of all frames must have the same size.")
+                .define("streamAnimations", false);
+        STREAM_FRAMES_AHEAD = builder
+                .comment("How many frames after the current one are decoded in advance.")
+                .defineInRange("framesAhead", 8, 1, 256);
+        STREAM_RESIDENT_FRAMES = builder
+                .comment("How many frames of each animation are kept in video memory, at least framesAhead + 2.")
+                .defineInRange("residentFrames", 16, 2, 1024);
+        STREAM_UPLOAD_BUDGET = builder
+                .comment("The time spent uploading upcoming frames each frame, in microseconds. The current frame is",
+                        "uploaded as soon as it is decoded regardless.")
+                .defineInRange("uploadBudgetMicros", 2000, 0, 100000);
+        builder.pop();
+        builder.push("residency");
+        LAZY_TEXTURES = builder
+                .comment("Loads the textures of a skybox only once it may appear soon, in the current world and close to its fade",
+                        "window, and frees them after it stayed hidden for a while. Textures shared by skyboxes are freed with the last one.")
+                .define("lazyTextures", false);
+        TEXTURE_LOOKAHEAD = builder
+                .comment("How many ticks before its fade window a skybox loads its textures.")
+                .defineInRange("lookaheadTicks", 1200, 0, 24000);
+        TEXTURE_IDLE = builder
+                .comment("How many ticks a skybox stays hidden and out of its fade window before its textures are freed.")
+                .defineInRange("idleTicks", 600, 0, 72000);
+        builder.pop();
+        SPEC = builder.build();
+    }
+
+    @SubscribeEvent
+    public static void onConfigLoad(ModConfigEvent event) {
+        if (event.getConfig().getSpec() == SPEC) {
+            evaluationMode = EVALUATION_MODE.get();
+            stitchFaces = STITCH_FACES.get();
+            animationTextureArrays = ANIMATION_TEXTURE_ARRAYS.get();
+            compositeStaticLayers = COMPOSITE_STATIC_LAYERS.get();
+            compositeBudgetMegabytes = COMPOSITE_BUDGET.get();
+            streamAnimations = STREAM_ANIMATIONS.get();
+            streamFramesAhead = STREAM_FRAMES_AHEAD.get();
+            streamResidentFrames = STREAM_RESIDENT_FRAMES.get();
+            streamUploadBudgetMicros = STREAM_UPLOAD_BUDGET.get();
+            lazyTextures = LAZY_TEXTURES.get();
+            textureLookaheadTicks = TEXTURE_LOOKAHEAD.get();
+            textureIdleTicks = TEXTURE_IDLE.get();
+        }
+    }
+
+    public enum EvaluationMode {
+        FRAME,
+        TICK
+    }
+}
@@ -7,36 +7,40 @@ import com.mojang.blaze3d.vertex.PoseStack;
 import com.mojang.math.Matrix4f;
 import com.mojang.serialization.JsonOps;
 import dev.mord.forgeskybox.mixin.skybox.WorldRendererAccess;
+import dev.mord.forgeskybox.render.CompositeCache;
+import dev.mord.forgeskybox.render.RenderMetrics;
+import dev.mord.forgeskybox.render.SkyboxRenderState;
+import dev.mord.forgeskybox.render.StreamingFrameArray;
 import dev.mord.forgeskybox.skyboxes.AbstractSkybox;
 import dev.mord.forgeskybox.skyboxes.SkyboxType;
+import dev.mord.forgeskybox.skyboxes.textured.TexturedSkybox;
+import dev.mord.forgeskybox.util.EnvironmentSnapshot;
 import dev.mord.forgeskybox.util.JsonObjectWrapper;
+import dev.mord.forgeskybox.util.object.Blend;
 import dev.mord.forgeskybox.util.object.internal.Metadata;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import net.minecraft.client.Camera;
+import net.minecraft.client.Minecraft;
 import net.minecraft.resources.ResourceLocation;
 import org.jetbrains.annotations.ApiStatus.Internal;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.function.Predicate;
-import java.util.stream.StreamSupport;
 
 public class SkyboxManager {
     private static final SkyboxManager INSTANCE = new SkyboxManager();
 
     public static final double MINIMUM_ALPHA = 0.001;
 
-    public static boolean shouldChangeFog;
-    public static float fogRed;
-    public static float fogBlue;
-    public static float fogGreen;
-
-    public static boolean renderSunriseAndSet;
-
     private boolean decorationsRendered;
 
-    private final Predicate<? super AbstractSkybox> renderPredicate = (skybox) -> !this.activeSkyboxes.contains(skybox) && skybox.alpha >= MINIMUM_ALPHA;
     private final ArrayList<AbstractSkybox> skyboxes = new ArrayList<>();
     /**
      * Stores a list of permanent skyboxes
@@ -44,7 +48,38 @@ public class SkyboxManager {
      * @see #addPermanentSkybox(AbstractSkybox)
      */
     private final ArrayList<AbstractSkybox> permanentSkyboxes = new ArrayList<>();
-    private final LinkedList<AbstractSkybox> activeSkyboxes = new LinkedList<>();
+    /**
+     * All skyboxes followed by the permanent skyboxes. The index of a skybox in this array is its slot.
+     */
+    private AbstractSkybox[] candidates = new AbstractSkybox[0];
+    private boolean candidatesDirty;
+    /**
+     * Slots of the active skyboxes in render order, and a bitset of the active slots.
+     */
+    private int[] activeSlots = new int[0];
+    private int activeCount;
+    private long[] activeMembership = new long[0];
+    /**
+     * Candidate slots by world, each sorted and merged with the slots of the skyboxes without a world condition.
+     */
+    private Map<ResourceLocation, int[]> slotsByWorld = Map.of();
+    private int[] unfilteredSlots = new int[0];
+    /**
+     * The world the current slots were selected for, only these slots are evaluated.
+     */
+    @Nullable
+    private ResourceLocation currentWorld;
+    private int[] currentSlots = new int[0];
+    /**
+     * Slots of the skyboxes of other worlds whose textures are still resident, until they are released.
+     */
+    private final IntArrayList lingeringSlots = new IntArrayList();
+    @Nullable
+    private EnvironmentSnapshot lastTickEnvironment;
+    private final FramePlan framePlan = new FramePlan();
+    private final RenderMetrics renderMetrics = new RenderMetrics();
+    private double animationTime;
+    private final CompositeCache compositeCache = new CompositeCache();
 
     public void addSkybox(ResourceLocation identifier, JsonObject jsonObject) {
         AbstractSkybox skybox = SkyboxManager.parseSkyboxJson(identifier, new JsonObjectWrapper(jsonObject));
@@ -55,6 +90,7 @@ public class SkyboxManager {
 
     public void addSkybox(AbstractSkybox skybox) {
         skyboxes.add(Objects.requireNonNull(skybox));
+        candidatesDirty = true;
     }
 
     /**
@@ -66,29 +102,368 @@ public class SkyboxManager {
     public void addPermanentSkybox(@NotNull AbstractSkybox skybox) {
         Preconditions.checkNotNull(skybox, "Skybox was null");
         this.permanentSkyboxes.add(skybox);
+        this.candidatesDirty = true;
     }
 
     @Internal
     public void clearSkyboxes() {
         skyboxes.clear();
-        activeSkyboxes.clear();
+        candidatesDirty = true;
+        framePlan.reset();
+        compositeCache.invalidate();
+    }
+
+    /**
+     * Captures the environment for the current tick and advances the alpha of every skybox,
+     * when conditions are evaluated per tick.
+     */
+    @Internal
+    public void tick() {
+        boolean perTick = SkyboxConfig.evaluationMode == SkyboxConfig.EvaluationMode.TICK;
+        if (!perTick && !SkyboxConfig.lazyTextures) {
+            return;
+        }
+        EnvironmentSnapshot environment = EnvironmentSnapshot.capture(Minecraft.getInstance());
+        if (environment == null) {
+            return;
+        }
+        if (perTick) {
+            this.tick(environment);
+        }
+        if (SkyboxConfig.lazyTextures) {
+            this.updateResidency(environment);
+        }
+    }
+
+    @Internal
+    public void tick(@NotNull EnvironmentSnapshot environment) {
+        if (this.candidatesDirty) {
+            this.rebuildCandidates();
+        }
+        this.selectWorld(environment.getWorld());
+        AbstractSkybox[] candidates = this.candidates;
+        for (int slot : this.currentSlots) {
+            candidates[slot].tickAlpha(environment);
+        }
+        this.lastTickEnvironment = environment;
+    }
+
+    /**
+     * Loads the textures of the skyboxes that may appear soon and frees the ones of skyboxes that stayed hidden.
+     * Skyboxes of other worlds are never about to appear, only the ones still resident are visited until they are freed.
+     */
+    private void updateResidency(EnvironmentSnapshot environment) {
+        if (this.candidatesDirty) {
+            this.rebuildCandidates();
+        }
+        this.selectWorld(environment.getWorld());
+        AbstractSkybox[] candidates = this.candidates;
+        long dayTime = environment.getDayTime();
+        for (int slot : this.currentSlots) {
+            if (candidates[slot] instanceof TexturedSkybox textured) {
+                textured.tickResidency(textured.getFade().isVisibleWithin(dayTime, SkyboxConfig.textureLookaheadTicks), SkyboxConfig.textureIdleTicks);
+            }
+        }
+        IntArrayList lingeringSlots = this.lingeringSlots;
+        for (int i = lingeringSlots.size() - 1; i >= 0; i--) {
+            TexturedSkybox textured = (TexturedSkybox) candidates[lingeringSlots.getInt(i)];
+            textured.tickResidency(false, SkyboxConfig.textureIdleTicks);
+            if (!textured.isResident()) {
+                lingeringSlots.removeInt(i);
+            }
+        }
+    }
+
+    /**
+     * Plans the current frame: updates the alpha of every skybox once, either from the environment
+     * of the frame or by interpolating between ticks, then orders the active layers.
+     *
+     * @param tickDelta The current tick delta.
+     * @return The plan of the frame, reused between frames.
+     */
+    @Internal
+    public FramePlan planFrame(float tickDelta) {
+        Minecraft client = Minecraft.getInstance();
+        if (client.level == null || client.player == null) {
+            this.lastTickEnvironment = null;
+            this.clearActive();
+            this.framePlan.reset();
+            return this.framePlan;
+        }
+        // when evaluating per tick the conditions were already checked by the last tick
+        EnvironmentSnapshot environment = SkyboxConfig.evaluationMode == SkyboxConfig.EvaluationMode.TICK ? this.lastTickEnvironment : EnvironmentSnapshot.capture(client);
+        if (environment == null) {
+            this.clearActive();
+            this.framePlan.reset();
+            return this.framePlan;
+        }
+        return this.planFrame(environment, tickDelta);
+    }
+
+    @Internal
+    public FramePlan planFrame(@NotNull EnvironmentSnapshot environment, float tickDelta) {
+        if (this.candidatesDirty) {
+            this.rebuildCandidates();
+        }
+        this.selectWorld(environment.getWorld());
+        AbstractSkybox[] candidates = this.candidates;
+        int[] currentSlots = this.currentSlots;
+        boolean interpolate = SkyboxConfig.evaluationMode == SkyboxConfig.EvaluationMode.TICK;
+        FramePlan plan = this.framePlan;
+        plan.reset();
+        for (int slot : currentSlots) {
+            AbstractSkybox skybox = candidates[slot];
+            float alpha = interpolate ? skybox.interpolateAlpha(tickDelta) : skybox.updateAlpha(environment);
+            plan.addAlpha(alpha);
+            if (alpha > MINIMUM_ALPHA) {
+                if (skybox.isChangeFog()) {
+                    plan.setFogColor(skybox.getFogColors());
+                }
+                if (!skybox.isRenderSunSkyColorTint()) {
+                    plan.disableSunriseAndSet();
+                }
+            }
+        }
+
+        // drop the layers that faded out, the others stay in the order they became active in
+        int[] activeSlots = this.activeSlots;
+        long[] membership = this.activeMembership;
+        int kept = 0;
+        for (int i = 0; i < this.activeCount; i++) {
+            int slot = activeSlots[i];
+            if (candidates[slot].alpha >= MINIMUM_ALPHA) {
+                activeSlots[kept++] = slot;
+            } else {
+                membership[slot >> 6] &= ~(1L << slot);
+            }
+        }
+        int count = kept;
+        // new layers go at the end
+        for (int slot : currentSlots) {
+            if (candidates[slot].alpha >= MINIMUM_ALPHA && (membership[slot >> 6] & (1L << slot)) == 0) {
+                membership[slot >> 6] |= 1L << slot;
+                activeSlots[count++] = slot;
+            }
+        }
+        this.activeCount = count;
+
+        // stable insertion sort by descending alpha, the order rarely changes between frames
+        for (int i = 1; i < count; i++) {
+            int slot = activeSlots[i];
+            float alpha = candidates[slot].alpha;
+            int j = i - 1;
+            while (j >= 0 && candidates[activeSlots[j]].alpha < alpha) {
+                activeSlots[j + 1] = activeSlots[j];
+                j--;
+            }
+            activeSlots[j + 1] = slot;
+        }
+        for (int i = 0; i < count; i++) {
+            plan.addLayer(candidates[activeSlots[i]]);
+        }
+        plan.sortByRenderState();
+        plan.cullHiddenLayers();
+        return plan;
     }
 
+    /**
+     * Rebuilds the candidate array after skyboxes were added or removed, keeping the order of the active layers.
+     */
+    private void rebuildCandidates() {
+        AbstractSkybox[] oldCandidates = this.candidates;
+        int[] oldActiveSlots = this.activeSlots;
+        int oldActiveCount = this.activeCount;
+
+        AbstractSkybox[] candidates = new AbstractSkybox[this.skyboxes.size() + this.permanentSkyboxes.size()];
+        Map<AbstractSkybox, Integer> slots = new IdentityHashMap<>();
+        int slot = 0;
+        for (AbstractSkybox skybox : Iterables.concat(this.skyboxes, this.permanentSkyboxes)) {
+            slots.put(skybox, slot);
+            candidates[slot++] = skybox;
+        }
+        this.candidates = candidates;
+        this.activeSlots = new int[candidates.length];
+        this.activeMembership = new long[(candidates.length + 63) >> 6];
+        this.activeCount = 0;
+        for (int i = 0; i < oldActiveCount; i++) {
+            Integer newSlot = slots.get(oldCandidates[oldActiveSlots[i]]);
+            if (newSlot != null) {
+                this.activeSlots[this.activeCount++] = newSlot;
+                this.activeMembership[newSlot >> 6] |= 1L << newSlot;
+            }
+        }
+        this.framePlan.ensureCapacity(candidates.length);
+        this.indexWorlds(candidates);
+        this.candidatesDirty = false;
+    }
+
+    /**
+     * Buckets the candidate slots by the worlds of their conditions, so only the skyboxes
+     * that can appear in the current world are evaluated.
+     */
+    private void indexWorlds(AbstractSkybox[] candidates) {
+        IntArrayList unfiltered = new IntArrayList();
+        Map<ResourceLocation, IntArrayList> byWorld = new HashMap<>();
+        for (int slot = 0; slot < candidates.length; slot++) {
+            List<ResourceLocation> worlds = candidates[slot].getWorlds();
+            if (worlds.isEmpty()) {
+                unfiltered.add(slot);
+                continue;
+            }
+            for (ResourceLocation world : worlds) {
+                IntArrayList slots = byWorld.computeIfAbsent(world, key -> new IntArrayList());
+                // a world listed twice must not evaluate the skybox twice
+                if (slots.isEmpty() || slots.getInt(slots.size() - 1) != slot) {
+                    slots.add(slot);
+                }
+            }
+        }
+        Map<ResourceLocation, int[]> slotsByWorld = new HashMap<>(byWorld.size());
+        byWorld.forEach((world, slots) -> {
+            slots.addAll(unfiltered);
+            int[] merged = slots.toIntArray();
+            Arrays.sort(merged);
+            slotsByWorld.put(world, merged);
+        });
+        this.slotsByWorld = slotsByWorld;
+        this.unfilteredSlots = unfiltered.toIntArray();
+        // every slot may still be active, the next world selection fades out the ones that don't belong
+        this.currentWorld = null;
+        this.currentSlots = new int[candidates.length];
+        Arrays.setAll(this.currentSlots, slot -> slot);
+        this.lingeringSlots.clear();
+    }
+
+    /**
+     * Switches the evaluated slots when the player changes world. Skyboxes that are no longer
+     * evaluated are faded out at once, so they leave the active layers on the next frame.
+     */
+    private void selectWorld(ResourceLocation world) {
+        if (world.equals(this.currentWorld)) {
+            return;
+        }
+        int[] slots = this.slotsByWorld.getOrDefault(world, this.unfilteredSlots);
+        for (int slot : this.currentSlots) {
+            if (Arrays.binarySearch(slots, slot) < 0) {
+                this.candidates[slot].resetAlpha();
+                if (this.candidates[slot] instanceof TexturedSkybox textured && textured.isResident()) {
+                    this.lingeringSlots.add(slot);
+                }
+            }
+        }
+        // skyboxes of the new world are visited with the current slots
+        for (int i = this.lingeringSlots.size() - 1; i >= 0; i--) {
+            if (Arrays.binarySearch(slots, this.lingeringSlots.getInt(i)) >= 0) {
+                this.lingeringSlots.removeInt(i);
+            }
+        }
+        this.currentWorld = world;
+        this.currentSlots = slots;
+    }
+
+    private void clearActive() {
+        this.activeCount = 0;
+        Arrays.fill(this.activeMembership, 0L);
+    }
+
+    /**
+     * @return The plan of the last frame.
+     */
     @Internal
-    public float getTotalAlpha() {
-        return (float) StreamSupport.stream(Iterables.concat(this.skyboxes, this.permanentSkyboxes).spliterator(), false).mapToDouble(AbstractSkybox::updateAlpha).sum();
+    public FramePlan getFramePlan() {
+        return this.framePlan;
     }
 
+    /**
+     * Renders the layers of the plan. Must be called on the render thread.
+     *
+     * @param animationTime The game time of the frame in seconds, see {@link #getAnimationTime()}.
+     */
     @Internal
-    public void renderSkyboxes(WorldRendererAccess worldRendererAccess, PoseStack matrices, Matrix4f matrix4f, float tickDelta, Camera camera, boolean thickFog) {
-        // Add the skyboxes to a activeSkyboxes container so that they can be ordered
-        this.skyboxes.stream().filter(this.renderPredicate).forEach(this.activeSkyboxes::add);
-        this.permanentSkyboxes.stream().filter(this.renderPredicate).forEach(this.activeSkyboxes::add);
+    public void renderSkyboxes(FramePlan plan, double animationTime, WorldRendererAccess worldRendererAccess, PoseStack matrices, Matrix4f matrix4f, float tickDelta, Camera camera, boolean thickFog) {
         // whether we should render the decorations, makes sure we don't get two suns
         decorationsRendered = false;
-        this.activeSkyboxes.sort((skybox1, skybox2) -> skybox1.alpha >= skybox2.alpha ? 0 : 1);
-        this.activeSkyboxes.forEach(skybox -> skybox.render(worldRendererAccess, matrices, matrix4f, tickDelta, camera, thickFog));
-        this.activeSkyboxes.removeIf((skybox) -> skybox.updateAlpha() <= MINIMUM_ALPHA);
+        this.animationTime = animationTime;
+        RenderMetrics metrics = this.renderMetrics;
+        metrics.beginFrame();
+        if (!SkyboxConfig.compositeStaticLayers && this.compositeCache.isAllocated()) {
+            this.compositeCache.release();
+        }
+        if (SkyboxConfig.streamAnimations) {
+            StreamingFrameArray.beginFrame(SkyboxConfig.streamUploadBudgetMicros);
+        }
+        if (plan.getLayerCount() == 0) {
+            metrics.endFrame();
+            return;
+        }
+        SkyboxRenderState.begin(metrics);
+        int firstLayer = plan.getFirstVisibleLayer();
+        if (firstLayer > 0) {
+            // the decorations belong to the first layer, hidden like it
+            decorationsRendered = true;
+            metrics.layersCulled(firstLayer);
+        }
+        if (SkyboxConfig.compositeStaticLayers && this.compositeCache.accept(plan, SkyboxConfig.compositeBudgetMegabytes, metrics)) {
+            if (!this.compositeCache.isBuilt()) {
+                // no decorations are drawn in between the layers of a composite
+                decorationsRendered = true;
+                for (int face = 0; face < 6; face++) {
+                    this.renderLayers(plan, firstLayer, worldRendererAccess, this.compositeCache.beginFace(face), matrix4f, tickDelta, camera, thickFog);
+                }
+                this.compositeCache.endBuild();
+            }
+            this.compositeCache.draw(matrices);
+        } else {
+            this.renderLayers(plan, firstLayer, worldRendererAccess, matrices, matrix4f, tickDelta, camera, thickFog);
+        }
+        SkyboxRenderState.end();
+        metrics.endFrame();
+    }
+
+    private void renderLayers(FramePlan plan, int firstLayer, WorldRendererAccess worldRendererAccess, PoseStack matrices, Matrix4f matrix4f, float tickDelta, Camera camera, boolean thickFog) {
+        RenderMetrics metrics = this.renderMetrics;
+        // consecutive textured layers with the same blend state share one state setup
+        Blend sharedBlend = null;
+        for (int i = firstLayer; i < plan.getLayerCount(); i++) {
+            AbstractSkybox layer = plan.getLayer(i);
+            if (layer instanceof TexturedSkybox textured) {
+                if (sharedBlend != null && sharedBlend.hasSameState(textured.getBlend())) {
+                    metrics.stateShared();
+                } else {
+                    textured.setupState();
+                    metrics.stateSetUp();
+                }
+                boolean decorationsPending = !decorationsRendered;
+                textured.renderLayer(worldRendererAccess, matrices, matrix4f, tickDelta, camera, thickFog);
+                // decorations change the shader and blend state
+                sharedBlend = decorationsPending && decorationsRendered ? null : textured.getBlend();
+            } else {
+                sharedBlend = null;
+                layer.render(worldRendererAccess, matrices, matrix4f, tickDelta, camera, thickFog);
+            }
+            metrics.layerRendered();
+        }
+    }
+
+    /**
+     * @return The game time of the current frame in seconds, shared by every animation.
+     */
+    public double getAnimationTime() {
+        return this.animationTime;
+    }
+
+    /**
+     * @return Every skybox, the permanent ones last.
+     */
+    public Iterable<AbstractSkybox> getSkyboxes() {
+        return Iterables.unmodifiableIterable(Iterables.concat(this.skyboxes, this.permanentSkyboxes));
+    }
+
+    /**
+     * @return The counters of the last rendered frame.
+     */
+    public RenderMetrics getRenderMetrics() {
+        return this.renderMetrics;
     }
 
     @Internal
@@ -0,0 +1,51 @@
+package dev.mord.forgeskybox.event;
+
+import dev.mord.forgeskybox.FabricSkyBoxesClient;
+import dev.mord.forgeskybox.SkyboxConfig;
+import dev.mord.forgeskybox.SkyboxManager;
+import dev.mord.forgeskybox.render.RenderMetrics;
+import dev.mord.forgeskybox.render.TextureResidency;
+import dev.mord.forgeskybox.skyboxes.AbstractSkybox;
+import dev.mord.forgeskybox.skyboxes.textured.TexturedSkybox;
+import net.minecraft.client.Minecraft;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.client.event.RenderGameOverlayEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+import java.util.List;
+
+/**
+ * Adds the counters of the skybox pass to the debug screen.
+ */
+@Mod.EventBusSubscriber(modid = FabricSkyBoxesClient.MODID, bus = Mod.EventBusSubscriber.Bus.FORGE, value = Dist.CLIENT)
+public class SkyboxDebugOverlay {
+    @SubscribeEvent
+    public static void onDebugText(RenderGameOverlayEvent.Text event) {
+        if (!Minecraft.getInstance().options.renderDebug) {
+            return;
+        }
+        RenderMetrics metrics = SkyboxManager.getInstance().getRenderMetrics();
+        List<String> lines = event.getRight();
+        lines.add("");
+        lines.add(String.format("Skyboxes: %d layers, %d culled", metrics.getLayers(), metrics.getCulledLayers()));
+        lines.add(String.format("Skybox states: %d set up, %d shared", metrics.getStateSetups(), metrics.getSharedStateSetups()));
+        lines.add(String.format("Skybox state calls: %d issued, %d elided", metrics.getStateCallsIssued(), metrics.getStateCallsElided()));
+        if (SkyboxConfig.compositeStaticLayers) {
+            lines.add(String.format("Skybox composite: %d hits, %d misses", metrics.getCompositeHits(), metrics.getCompositeMisses()));
+        }
+        if (SkyboxConfig.streamAnimations) {
+            lines.add(String.format("Skybox streaming: %d frames, %d MB resident, %d underruns", metrics.getStreamedFrames(), metrics.getStreamedBytes() / (1024L * 1024L), metrics.getStreamUnderruns()));
+        }
+        if (SkyboxConfig.lazyTextures) {
+            lines.add(String.format("Skybox textures: %d KB resident", TextureResidency.getResidentBytes() / 1024L));
+            for (AbstractSkybox skybox : SkyboxManager.getInstance().getSkyboxes()) {
+                if (skybox instanceof TexturedSkybox textured && textured.getResidentTextureBytes() > 0) {
+                    ResourceLocation name = textured.getSortTexture();
+                    lines.add(String.format("  %s: %d KB", name != null ? name : skybox.getType().getName(), textured.getResidentTextureBytes() / 1024L));
+                }
+            }
+        }
+    }
+}
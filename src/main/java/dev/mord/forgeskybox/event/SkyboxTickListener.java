@@ -0,0 +1,20 @@
+package dev.mord.forgeskybox.event;
+
+import dev.mord.forgeskybox.FabricSkyBoxesClient;
+import dev.mord.forgeskybox.SkyboxManager;
+import net.minecraft.client.Minecraft;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+@Mod.EventBusSubscriber(modid = FabricSkyBoxesClient.MODID, bus = Mod.EventBusSubscriber.Bus.FORGE, value = Dist.CLIENT)
+public class SkyboxTickListener {
+    @SubscribeEvent
+    public static void onClientTick(TickEvent.ClientTickEvent event) {
+        // skyboxes freeze with the rest of the world while the game is paused
+        if (event.phase == TickEvent.Phase.END && !Minecraft.getInstance().isPaused()) {
+            SkyboxManager.getInstance().tick();
+        }
+    }
+}
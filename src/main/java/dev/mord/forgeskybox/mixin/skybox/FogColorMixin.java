@@ -1,5 +1,6 @@
 package dev.mord.forgeskybox.mixin.skybox;
 
+import dev.mord.forgeskybox.FramePlan;
 import dev.mord.forgeskybox.SkyboxManager;
 import net.minecraft.client.Camera;
 import net.minecraft.client.multiplayer.ClientLevel;
@@ -29,12 +30,12 @@ public class FogColorMixin {
 
     @Inject(method = "setupColor", at = @At("HEAD"), cancellable = true)
     private static void modifyColors(Camera pActiveRenderInfo, float pPartialTicks, ClientLevel pLevel, int pRenderDistanceChunks, float pBossColorModifier, CallbackInfo ci) {
-        if (SkyboxManager.shouldChangeFog)
+        FramePlan plan = SkyboxManager.getInstance().getFramePlan();
+        if (plan.shouldChangeFog())
         {
-            fogRed = SkyboxManager.fogRed;
-            fogBlue = SkyboxManager.fogBlue;
-            fogGreen = SkyboxManager.fogGreen;
-            SkyboxManager.shouldChangeFog = false;
+            fogRed = plan.getFogRed();
+            fogBlue = plan.getFogBlue();
+            fogGreen = plan.getFogGreen();
             ci.cancel();
         }
     }
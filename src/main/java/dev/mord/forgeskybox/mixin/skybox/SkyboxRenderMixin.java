@@ -2,8 +2,11 @@ package dev.mord.forgeskybox.mixin.skybox;
 
 import com.mojang.blaze3d.vertex.PoseStack;
 import com.mojang.math.Matrix4f;
+import dev.mord.forgeskybox.FramePlan;
 import dev.mord.forgeskybox.SkyboxManager;
 import net.minecraft.client.Camera;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.multiplayer.ClientLevel;
 import net.minecraft.client.renderer.LevelRenderer;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.injection.At;
@@ -17,10 +20,14 @@ public class SkyboxRenderMixin {
      */
     @Inject(method = "renderSky", at = @At("HEAD"), cancellable = true)
     private void renderCustomSkyboxes(PoseStack matrices, Matrix4f matrix4f, float tickDelta, Camera camera, boolean bl, Runnable runnable, CallbackInfo ci) {
-        runnable.run();
-        float total = SkyboxManager.getInstance().getTotalAlpha();
-        SkyboxManager.getInstance().renderSkyboxes((WorldRendererAccess) this, matrices, matrix4f, tickDelta, camera, bl);
-        if (total > SkyboxManager.MINIMUM_ALPHA) {
+        FramePlan plan = SkyboxManager.getInstance().planFrame(tickDelta);
+        if (plan.needsSkyFog()) {
+            runnable.run();
+        }
+        ClientLevel level = Minecraft.getInstance().level;
+        double animationTime = level != null ? (level.getGameTime() + tickDelta) / 20.0D : 0.0D;
+        SkyboxManager.getInstance().renderSkyboxes(plan, animationTime, (WorldRendererAccess) this, matrices, matrix4f, tickDelta, camera, bl);
+        if (plan.getTotalAlpha() > SkyboxManager.MINIMUM_ALPHA) {
             ci.cancel();
         }
     }
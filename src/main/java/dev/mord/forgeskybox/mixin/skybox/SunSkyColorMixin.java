@@ -17,12 +17,9 @@ public class SunSkyColorMixin {
     )
     private static int renderSkyColor(int original)
     {
-        if (SkyboxManager.renderSunriseAndSet)
+        if (SkyboxManager.getInstance().getFramePlan().shouldRenderSunriseAndSet())
             return original;
         else
-        {
-            SkyboxManager.renderSunriseAndSet = true;
             return Integer.MAX_VALUE;
-        }
     }
 }
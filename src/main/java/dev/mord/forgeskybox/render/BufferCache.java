@@ -0,0 +1,47 @@
+package dev.mord.forgeskybox.render;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Buffers baked the first time their key is drawn and kept until every buffer is released.
+ * Only used from the render thread.
+ *
+ * @param <K> The key, everything baked into the buffer.
+ * @param <B> The buffer.
+ */
+final class BufferCache<K, B> {
+    private final Map<K, B> buffers = new HashMap<>();
+    private final Function<K, B> bake;
+    private final Consumer<B> release;
+
+    /**
+     * @param bake    Bakes and uploads the buffer of a key.
+     * @param release Frees a buffer.
+     */
+    BufferCache(Function<K, B> bake, Consumer<B> release) {
+        this.bake = bake;
+        this.release = release;
+    }
+
+    /**
+     * @return The buffer of the key, baked if this is its first use.
+     */
+    B get(K key) {
+        return this.buffers.computeIfAbsent(key, this.bake);
+    }
+
+    /**
+     * Frees every buffer, the keys are baked again on their next use.
+     */
+    void releaseAll() {
+        this.buffers.values().forEach(this.release);
+        this.buffers.clear();
+    }
+
+    int size() {
+        return this.buffers.size();
+    }
+}
@@ -0,0 +1,272 @@
+package dev.mord.forgeskybox.render;
+
+import com.mojang.blaze3d.platform.TextureUtil;
+import com.mojang.blaze3d.systems.RenderSystem;
+import com.mojang.blaze3d.vertex.PoseStack;
+import com.mojang.math.Matrix4f;
+import com.mojang.math.Vector3f;
+import dev.mord.forgeskybox.FramePlan;
+import dev.mord.forgeskybox.skyboxes.AbstractSkybox;
+import dev.mord.forgeskybox.skyboxes.textured.TexturedSkybox;
+import dev.mord.forgeskybox.util.object.Decorations;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.renderer.ShaderInstance;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+import org.lwjgl.opengl.GL13;
+import org.lwjgl.opengl.GL30;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * The visible layers of a frame rendered into a cube map, drawn instead of the layers while they don't change.
+ * The cube map is only built once the same layers were visible at the same alphas for {@link #STABLE_FRAMES} frames,
+ * so fades don't rebuild it every frame. Only used from the render thread.
+ */
+public class CompositeCache {
+    private static final int STABLE_FRAMES = 20;
+    private static final int MIN_FACE_SIZE = 64;
+    private static final int MAX_FACE_SIZE = 2048;
+    private static final int[] TARGETS = {
+            GL13.GL_TEXTURE_CUBE_MAP_POSITIVE_X,
+            GL13.GL_TEXTURE_CUBE_MAP_NEGATIVE_X,
+            GL13.GL_TEXTURE_CUBE_MAP_POSITIVE_Y,
+            GL13.GL_TEXTURE_CUBE_MAP_NEGATIVE_Y,
+            GL13.GL_TEXTURE_CUBE_MAP_POSITIVE_Z,
+            GL13.GL_TEXTURE_CUBE_MAP_NEGATIVE_Z
+    };
+    private static final float[] CLEAR_COLOR = {0.0F, 0.0F, 0.0F, 0.0F};
+    private static final Matrix4f FACE_PROJECTION = Matrix4f.perspective(90.0D, 1.0F, 0.05F, 512.0F);
+
+    /**
+     * The layers and alphas the cube map is built or about to be built from.
+     */
+    private AbstractSkybox[] layers = new AbstractSkybox[0];
+    private float[] alphas = new float[0];
+    private int layerCount;
+    private int stableFrames;
+    private boolean built;
+
+    private int texture = -1;
+    private int framebuffer = -1;
+    private int faceSize;
+    private Matrix4f savedProjection;
+
+    /**
+     * Decides whether the frame is drawn from the cube map, call {@link #isBuilt()} to know whether it must be built first.
+     *
+     * @param plan            The plan of the frame.
+     * @param budgetMegabytes The video memory the cube map may use.
+     * @return {@code true} if the frame should be drawn from the cube map.
+     */
+    public boolean accept(FramePlan plan, int budgetMegabytes, RenderMetrics metrics) {
+        RenderSystem.assertOnRenderThread();
+        if (!isStatic(plan) || !this.allocate(faceSize(budgetMegabytes))) {
+            metrics.compositeMiss();
+            return false;
+        }
+        if (this.matches(plan)) {
+            if (this.built) {
+                metrics.compositeHit();
+                return true;
+            }
+            metrics.compositeMiss();
+            return ++this.stableFrames >= STABLE_FRAMES;
+        }
+        this.store(plan);
+        metrics.compositeMiss();
+        return false;
+    }
+
+    public boolean isBuilt() {
+        return this.built;
+    }
+
+    /**
+     * Forgets the layers the cube map was built from, so it is built again.
+     */
+    public void invalidate() {
+        Arrays.fill(this.layers, null);
+        this.layerCount = 0;
+        this.stableFrames = 0;
+        this.built = false;
+    }
+
+    /**
+     * Binds a face of the cube map as the render target.
+     *
+     * @param face The face, in the order of the cube map targets.
+     * @return The matrices looking at the face from the center, to render the layers with.
+     */
+    public PoseStack beginFace(int face) {
+        if (face == 0) {
+            this.savedProjection = RenderSystem.getProjectionMatrix().copy();
+            RenderSystem.setProjectionMatrix(FACE_PROJECTION);
+            GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, this.framebuffer);
+            RenderSystem.viewport(0, 0, this.faceSize, this.faceSize);
+        }
+        GL30.glFramebufferTexture2D(GL30.GL_FRAMEBUFFER, GL30.GL_COLOR_ATTACHMENT0, TARGETS[face], this.texture, 0);
+        // doesn't touch the clear color vanilla set up
+        GL30.glClearBufferfv(GL11.GL_COLOR, 0, CLEAR_COLOR);
+        PoseStack matrices = new PoseStack();
+        // the view of each face, following the orientation of the cube map faces
+        switch (face) {
+            case 0 -> {
+                matrices.mulPose(Vector3f.ZP.rotationDegrees(180.0F));
+                matrices.mulPose(Vector3f.YP.rotationDegrees(90.0F));
+            }
+            case 1 -> {
+                matrices.mulPose(Vector3f.ZP.rotationDegrees(180.0F));
+                matrices.mulPose(Vector3f.YP.rotationDegrees(-90.0F));
+            }
+            case 2 -> matrices.mulPose(Vector3f.XP.rotationDegrees(-90.0F));
+            case 3 -> matrices.mulPose(Vector3f.XP.rotationDegrees(90.0F));
+            case 4 -> matrices.mulPose(Vector3f.XP.rotationDegrees(180.0F));
+            default -> matrices.mulPose(Vector3f.ZP.rotationDegrees(180.0F));
+        }
+        return matrices;
+    }
+
+    /**
+     * Restores the main render target after the six faces were rendered.
+     */
+    public void endBuild() {
+        Minecraft.getInstance().getMainRenderTarget().bindWrite(true);
+        RenderSystem.setProjectionMatrix(this.savedProjection);
+        this.savedProjection = null;
+        this.built = true;
+    }
+
+    /**
+     * Draws the cube map around the camera. Blending is off, the bottom layer covers the sky, so the alpha
+     * translucent layers left in the cube map is ignored. The cube map shader doesn't apply a blend mode of its own.
+     */
+    public void draw(PoseStack matrices) {
+        ShaderInstance shader = SkyboxShaders.getCubemapShader();
+        if (shader == null) {
+            return;
+        }
+        SkyboxRenderState.depthMask(false);
+        SkyboxRenderState.blend(false);
+        SkyboxRenderState.cull(false);
+        SkyboxRenderState.shaderColor(1.0F, 1.0F, 1.0F, 1.0F);
+        RenderSystem.activeTexture(GL13.GL_TEXTURE0);
+        GL11.glBindTexture(GL13.GL_TEXTURE_CUBE_MAP, this.texture);
+        SkyboxMeshes.positionCube().drawWithShader(matrices.last().pose(), RenderSystem.getProjectionMatrix(), shader);
+        GL11.glBindTexture(GL13.GL_TEXTURE_CUBE_MAP, 0);
+        SkyboxRenderState.cull(true);
+    }
+
+    /**
+     * Frees the cube map, it is allocated again when needed.
+     */
+    public void release() {
+        RenderSystem.assertOnRenderThread();
+        if (this.framebuffer != -1) {
+            GL30.glDeleteFramebuffers(this.framebuffer);
+            TextureUtil.releaseTextureId(this.texture);
+            this.framebuffer = -1;
+            this.texture = -1;
+            this.faceSize = 0;
+        }
+        this.invalidate();
+    }
+
+    public boolean isAllocated() {
+        return this.framebuffer != -1;
+    }
+
+    private boolean allocate(int faceSize) {
+        if (faceSize == this.faceSize) {
+            return faceSize != 0;
+        }
+        this.release();
+        if (faceSize == 0) {
+            return false;
+        }
+        this.faceSize = faceSize;
+        this.texture = TextureUtil.generateTextureId();
+        GL11.glBindTexture(GL13.GL_TEXTURE_CUBE_MAP, this.texture);
+        GL11.glTexParameteri(GL13.GL_TEXTURE_CUBE_MAP, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_LINEAR);
+        GL11.glTexParameteri(GL13.GL_TEXTURE_CUBE_MAP, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_LINEAR);
+        GL11.glTexParameteri(GL13.GL_TEXTURE_CUBE_MAP, GL11.GL_TEXTURE_WRAP_S, GL12.GL_CLAMP_TO_EDGE);
+        GL11.glTexParameteri(GL13.GL_TEXTURE_CUBE_MAP, GL11.GL_TEXTURE_WRAP_T, GL12.GL_CLAMP_TO_EDGE);
+        GL11.glTexParameteri(GL13.GL_TEXTURE_CUBE_MAP, GL12.GL_TEXTURE_WRAP_R, GL12.GL_CLAMP_TO_EDGE);
+        for (int target : TARGETS) {
+            GL11.glTexImage2D(target, 0, GL11.GL_RGBA8, faceSize, faceSize, 0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, (IntBuffer) null);
+        }
+        GL11.glBindTexture(GL13.GL_TEXTURE_CUBE_MAP, 0);
+        this.framebuffer = GL30.glGenFramebuffers();
+        return true;
+    }
+
+    /**
+     * @return The largest face size fitting the budget, or 0 if even the smallest doesn't.
+     */
+    private static int faceSize(int budgetMegabytes) {
+        long budget = budgetMegabytes * 1024L * 1024L;
+        int size = MAX_FACE_SIZE;
+        // six RGBA faces
+        while (size >= MIN_FACE_SIZE && 6L * 4L * size * size > budget) {
+            size /= 2;
+        }
+        return size >= MIN_FACE_SIZE ? size : 0;
+    }
+
+    /**
+     * @return Whether the visible layers can be drawn from a cube map: they are all textured and static,
+     * the bottom one covers the sky, and no decorations are drawn in between them.
+     */
+    private static boolean isStatic(FramePlan plan) {
+        int first = plan.getFirstVisibleLayer();
+        if (plan.getLayerCount() == 0 || SkyboxShaders.getCubemapShader() == null) {
+            return false;
+        }
+        if (!(plan.getLayer(first) instanceof TexturedSkybox bottom) || !bottom.coversSky(plan.getAlpha(first))) {
+            return false;
+        }
+        if (first == 0) {
+            Decorations decorations = bottom.getDecorations();
+            if (decorations.isSunEnabled() || decorations.isMoonEnabled() || decorations.isStarsEnabled()) {
+                return false;
+            }
+        }
+        for (int i = first; i < plan.getLayerCount(); i++) {
+            if (!(plan.getLayer(i) instanceof TexturedSkybox textured) || !textured.isStatic()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean matches(FramePlan plan) {
+        int first = plan.getFirstVisibleLayer();
+        if (plan.getLayerCount() - first != this.layerCount) {
+            return false;
+        }
+        for (int i = 0; i < this.layerCount; i++) {
+            if (this.layers[i] != plan.getLayer(first + i) || this.alphas[i] != plan.getAlpha(first + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void store(FramePlan plan) {
+        int first = plan.getFirstVisibleLayer();
+        int count = plan.getLayerCount() - first;
+        if (this.layers.length < count) {
+            this.layers = new AbstractSkybox[count];
+            this.alphas = new float[count];
+        }
+        Arrays.fill(this.layers, null);
+        for (int i = 0; i < count; i++) {
+            this.layers[i] = plan.getLayer(first + i);
+            this.alphas[i] = plan.getAlpha(first + i);
+        }
+        this.layerCount = count;
+        this.stableFrames = 1;
+        this.built = false;
+    }
+}
@@ -0,0 +1,208 @@
+package dev.mord.forgeskybox.render;
+
+import com.mojang.blaze3d.platform.GlStateManager;
+import com.mojang.blaze3d.platform.NativeImage;
+import com.mojang.blaze3d.systems.RenderSystem;
+import dev.mord.forgeskybox.FabricSkyBoxesClient;
+import dev.mord.forgeskybox.util.object.Texture;
+import dev.mord.forgeskybox.util.object.Textures;
+import net.minecraft.Util;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.renderer.texture.AbstractTexture;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.packs.resources.Resource;
+import net.minecraft.server.packs.resources.ResourceManager;
+import org.jetbrains.annotations.Nullable;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+import org.lwjgl.opengl.GL13;
+import org.lwjgl.opengl.GL32;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * The six faces of a skybox uploaded into a cube map. The faces are decoded in the background and uploaded
+ * on the render thread. Skyboxes with the same faces share one cube map, they are all released when skyboxes
+ * are reloaded.
+ */
+public class CubemapTexture extends AbstractTexture {
+    /**
+     * The cube map face of each skybox face, in the order of {@link Textures#byId(int)}.
+     */
+    private static final int[] TARGETS = {
+            GL13.GL_TEXTURE_CUBE_MAP_NEGATIVE_Y, // bottom
+            GL13.GL_TEXTURE_CUBE_MAP_NEGATIVE_Z, // north
+            GL13.GL_TEXTURE_CUBE_MAP_POSITIVE_Z, // south
+            GL13.GL_TEXTURE_CUBE_MAP_POSITIVE_Y, // top
+            GL13.GL_TEXTURE_CUBE_MAP_POSITIVE_X, // east
+            GL13.GL_TEXTURE_CUBE_MAP_NEGATIVE_X  // west
+    };
+    private static final Map<ResourceLocation, CubemapTexture> LOADED = new HashMap<>();
+    private final Textures textures;
+    @Nullable
+    private CompletableFuture<Faces> decode;
+    private boolean loaded;
+    private boolean released;
+
+    public CubemapTexture(Textures textures) {
+        this.textures = textures;
+    }
+
+    /**
+     * @return The cube map of the textures, decoded in the background on first use. Call {@link #update()}
+     * and check {@link #isLoaded()} before drawing it.
+     */
+    public static CubemapTexture getOrLoad(Textures textures) {
+        RenderSystem.assertOnRenderThread();
+        return LOADED.computeIfAbsent(createId(textures), id -> {
+            CubemapTexture texture = new CubemapTexture(textures);
+            ResourceManager resourceManager = Minecraft.getInstance().getResourceManager();
+            texture.decode = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return texture.decode(resourceManager);
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }, Util.backgroundExecutor());
+            return texture;
+        });
+    }
+
+    /**
+     * Releases every cube map, on the render thread. Skyboxes still in use load theirs again.
+     */
+    public static void releaseAll() {
+        RenderSystem.recordRenderCall(() -> {
+            for (CubemapTexture texture : LOADED.values()) {
+                if (texture.decode != null) {
+                    texture.decode.cancel(false);
+                    texture.decode = null;
+                }
+                texture.releaseId();
+                texture.released = true;
+            }
+            LOADED.clear();
+        });
+    }
+
+    /**
+     * Uploads the faces once they are decoded.
+     */
+    public void update() {
+        RenderSystem.assertOnRenderThread();
+        if (this.decode == null || !this.decode.isDone()) {
+            return;
+        }
+        CompletableFuture<Faces> decode = this.decode;
+        this.decode = null;
+        try {
+            Faces faces = decode.join();
+            this.upload(faces.pixels(), faces.size());
+        } catch (CompletionException e) {
+            // not decoded again, so a broken skybox doesn't try every frame
+            FabricSkyBoxesClient.getLogger().error("Error loading cube map " + createId(this.textures), e.getCause());
+        }
+    }
+
+    public boolean isLoaded() {
+        return this.loaded;
+    }
+
+    public boolean isReleased() {
+        return this.released;
+    }
+
+    private static ResourceLocation createId(Textures textures) {
+        ResourceLocation north = textures.getNorth().getTextureId();
+        int hash = 1;
+        for (int i = 0; i < 6; i++) {
+            Texture face = textures.byId(i);
+            hash = 31 * hash + Objects.hash(face.getTextureId(), face.getMinU(), face.getMinV(), face.getMaxU(), face.getMaxV());
+        }
+        return new ResourceLocation(FabricSkyBoxesClient.MODID, "cubemap/" + north.getNamespace() + "/" + north.getPath() + "/" + Integer.toHexString(hash));
+    }
+
+    @Override
+    public void load(ResourceManager resourceManager) throws IOException {
+        Faces faces = this.decode(resourceManager);
+        if (!RenderSystem.isOnRenderThreadOrInit()) {
+            RenderSystem.recordRenderCall(() -> this.upload(faces.pixels(), faces.size()));
+        } else {
+            this.upload(faces.pixels(), faces.size());
+        }
+    }
+
+    private Faces decode(ResourceManager resourceManager) throws IOException {
+        int[][] pixels = new int[6][];
+        int size = -1;
+        for (int i = 0; i < 6; i++) {
+            Texture face = this.textures.byId(i);
+            try (Resource resource = resourceManager.getResource(face.getTextureId()); NativeImage image = NativeImage.read(resource.getInputStream())) {
+                int minX = Math.round(face.getMinU() * image.getWidth());
+                int minY = Math.round(face.getMinV() * image.getHeight());
+                int width = Math.round(face.getMaxU() * image.getWidth()) - minX;
+                int height = Math.round(face.getMaxV() * image.getHeight()) - minY;
+                if (width != height || width <= 0 || (size != -1 && width != size)) {
+                    throw new IOException("Cube map faces must be square and have the same size, " + face.getTextureId() + " is " + width + "x" + height);
+                }
+                size = width;
+                // cube map faces are seen from the inside, the sides are mirrored horizontally and the top and bottom vertically
+                boolean flipX = TARGETS[i] != GL13.GL_TEXTURE_CUBE_MAP_POSITIVE_Y && TARGETS[i] != GL13.GL_TEXTURE_CUBE_MAP_NEGATIVE_Y;
+                pixels[i] = new int[size * size];
+                for (int y = 0; y < size; y++) {
+                    for (int x = 0; x < size; x++) {
+                        int sourceX = flipX ? size - 1 - x : x;
+                        int sourceY = flipX ? y : size - 1 - y;
+                        pixels[i][y * size + x] = image.getPixelRGBA(minX + sourceX, minY + sourceY);
+                    }
+                }
+            }
+        }
+        return new Faces(size, pixels);
+    }
+
+    private void upload(int[][] pixels, int size) {
+        GL11.glBindTexture(GL13.GL_TEXTURE_CUBE_MAP, this.getId());
+        GL11.glTexParameteri(GL13.GL_TEXTURE_CUBE_MAP, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_LINEAR);
+        GL11.glTexParameteri(GL13.GL_TEXTURE_CUBE_MAP, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_LINEAR);
+        GL11.glTexParameteri(GL13.GL_TEXTURE_CUBE_MAP, GL11.GL_TEXTURE_WRAP_S, GL12.GL_CLAMP_TO_EDGE);
+        GL11.glTexParameteri(GL13.GL_TEXTURE_CUBE_MAP, GL11.GL_TEXTURE_WRAP_T, GL12.GL_CLAMP_TO_EDGE);
+        GL11.glTexParameteri(GL13.GL_TEXTURE_CUBE_MAP, GL12.GL_TEXTURE_WRAP_R, GL12.GL_CLAMP_TO_EDGE);
+        // native images leave their unpack state behind
+        GlStateManager._pixelStore(GL11.GL_UNPACK_ROW_LENGTH, 0);
+        GlStateManager._pixelStore(GL11.GL_UNPACK_SKIP_PIXELS, 0);
+        GlStateManager._pixelStore(GL11.GL_UNPACK_SKIP_ROWS, 0);
+        GlStateManager._pixelStore(GL11.GL_UNPACK_ALIGNMENT, 4);
+        for (int i = 0; i < 6; i++) {
+            GL11.glTexImage2D(TARGETS[i], 0, GL11.GL_RGBA8, size, size, 0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, pixels[i]);
+        }
+        // filter across the edges of the faces instead of within each face
+        GL11.glEnable(GL32.GL_TEXTURE_CUBE_MAP_SEAMLESS);
+        GL11.glBindTexture(GL13.GL_TEXTURE_CUBE_MAP, 0);
+        this.loaded = true;
+    }
+
+    /**
+     * Binds the cube map to the first texture unit.
+     */
+    public void bindCubemap() {
+        RenderSystem.activeTexture(GL13.GL_TEXTURE0);
+        GL11.glBindTexture(GL13.GL_TEXTURE_CUBE_MAP, this.getId());
+    }
+
+    public static void unbindCubemap() {
+        RenderSystem.activeTexture(GL13.GL_TEXTURE0);
+        GL11.glBindTexture(GL13.GL_TEXTURE_CUBE_MAP, 0);
+    }
+
+    /**
+     * The pixels of the six faces, in the order of {@link Textures#byId(int)}.
+     */
+    private record Faces(int size, int[][] pixels) {
+    }
+}
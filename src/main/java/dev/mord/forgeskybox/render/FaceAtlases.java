@@ -0,0 +1,129 @@
+package dev.mord.forgeskybox.render;
+
+import com.mojang.blaze3d.platform.NativeImage;
+import com.mojang.blaze3d.systems.RenderSystem;
+import dev.mord.forgeskybox.FabricSkyBoxesClient;
+import dev.mord.forgeskybox.util.object.Texture;
+import dev.mord.forgeskybox.util.object.Textures;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.renderer.texture.DynamicTexture;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.packs.resources.Resource;
+import net.minecraft.server.packs.resources.ResourceManager;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Stitches the six faces of a skybox into one texture, using the same 3x2 layout as the single sprite skyboxes.
+ */
+public final class FaceAtlases {
+    /**
+     * The cell of each face in the atlas as column and row, in the order of {@link Textures#byId(int)}.
+     */
+    private static final int[][] CELLS = {
+            {0, 0}, // bottom
+            {1, 1}, // north
+            {2, 0}, // south
+            {1, 0}, // top
+            {2, 1}, // east
+            {0, 1}  // west
+    };
+    private static final List<ResourceLocation> ATLASES = new ArrayList<>();
+
+    private FaceAtlases() {
+    }
+
+    /**
+     * Reads and stitches the faces, then registers the atlas on the render thread and hands the
+     * textures remapped into it to the consumer.
+     *
+     * @param resourceManager The resource manager to read the faces from.
+     * @param skyboxId        The id of the skybox, used to name the atlas.
+     * @param textures        The faces to stitch.
+     * @param consumer        Receives the remapped textures on the render thread.
+     * @return {@code false} if the faces couldn't be stitched and the textures are left as they are.
+     */
+    public static boolean stitch(ResourceManager resourceManager, ResourceLocation skyboxId, Textures textures, Consumer<Textures> consumer) {
+        NativeImage atlas;
+        try {
+            atlas = stitch(resourceManager, textures);
+        } catch (IOException e) {
+            FabricSkyBoxesClient.getLogger().error("Error reading the faces of skybox " + skyboxId + " to stitch them", e);
+            return false;
+        }
+        if (atlas == null) {
+            FabricSkyBoxesClient.getLogger().warn("Not stitching the faces of skybox " + skyboxId + ", they don't have the same size");
+            return false;
+        }
+        ResourceLocation atlasId = new ResourceLocation(FabricSkyBoxesClient.MODID, "atlas/" + skyboxId.getNamespace() + "/" + skyboxId.getPath());
+        Texture[] faces = new Texture[6];
+        for (int i = 0; i < 6; i++) {
+            float minU = CELLS[i][0] / 3.0F;
+            float minV = CELLS[i][1] / 2.0F;
+            faces[i] = new Texture(atlasId, minU, minV, minU + 1.0F / 3.0F, minV + 1.0F / 2.0F);
+        }
+        Textures stitched = new Textures(faces[1], faces[2], faces[4], faces[5], faces[3], faces[0]);
+        RenderSystem.recordRenderCall(() -> {
+            Minecraft.getInstance().getTextureManager().register(atlasId, new DynamicTexture(atlas));
+            ATLASES.add(atlasId);
+            consumer.accept(stitched);
+        });
+        return true;
+    }
+
+    /**
+     * Releases every atlas, on the render thread.
+     */
+    public static void releaseAll() {
+        RenderSystem.recordRenderCall(() -> {
+            for (ResourceLocation atlasId : ATLASES) {
+                Minecraft.getInstance().getTextureManager().release(atlasId);
+            }
+            ATLASES.clear();
+        });
+    }
+
+    @Nullable
+    private static NativeImage stitch(ResourceManager resourceManager, Textures textures) throws IOException {
+        NativeImage atlas = null;
+        int cellWidth = 0;
+        int cellHeight = 0;
+        for (int i = 0; i < 6; i++) {
+            Texture face = textures.byId(i);
+            try (Resource resource = resourceManager.getResource(face.getTextureId()); NativeImage image = NativeImage.read(resource.getInputStream())) {
+                int minX = Math.round(face.getMinU() * image.getWidth());
+                int minY = Math.round(face.getMinV() * image.getHeight());
+                int width = Math.round(face.getMaxU() * image.getWidth()) - minX;
+                int height = Math.round(face.getMaxV() * image.getHeight()) - minY;
+                if (atlas == null) {
+                    if (width <= 0 || height <= 0) {
+                        return null;
+                    }
+                    cellWidth = width;
+                    cellHeight = height;
+                    atlas = new NativeImage(cellWidth * 3, cellHeight * 2, true);
+                } else if (width != cellWidth || height != cellHeight) {
+                    atlas.close();
+                    return null;
+                }
+                int cellX = CELLS[i][0] * cellWidth;
+                int cellY = CELLS[i][1] * cellHeight;
+                for (int y = 0; y < height; y++) {
+                    for (int x = 0; x < width; x++) {
+                        atlas.setPixelRGBA(cellX + x, cellY + y, image.getPixelRGBA(minX + x, minY + y));
+                    }
+                }
+            } catch (IOException e) {
+                if (atlas != null) {
+                    atlas.close();
+                }
+                throw e;
+            }
+        }
+        return atlas;
+    }
+}
@@ -0,0 +1,150 @@
+package dev.mord.forgeskybox.render;
+
+/**
+ * Counters of the skybox pass, published once per frame for the debug screen.
+ */
+public class RenderMetrics {
+    private int layers;
+    private int culledLayers;
+    private int stateSetups;
+    private int sharedStateSetups;
+    private int stateCallsIssued;
+    private int stateCallsElided;
+    private int lastLayers;
+    private int lastCulledLayers;
+    private int lastStateSetups;
+    private int lastSharedStateSetups;
+    private int lastStateCallsIssued;
+    private int lastStateCallsElided;
+    /**
+     * Frames drawn from the composite cube map or without it while compositing is enabled, since the game started.
+     */
+    private long compositeHits;
+    private long compositeMisses;
+    /**
+     * Animation frames currently resident in streaming texture arrays and their size.
+     */
+    private int streamedFrames;
+    private long streamedBytes;
+    /**
+     * Frames whose animation frame wasn't resident when drawn, since the game started.
+     */
+    private long streamUnderruns;
+
+    public void beginFrame() {
+        this.layers = 0;
+        this.culledLayers = 0;
+        this.stateSetups = 0;
+        this.sharedStateSetups = 0;
+        this.stateCallsIssued = 0;
+        this.stateCallsElided = 0;
+    }
+
+    public void endFrame() {
+        this.lastLayers = this.layers;
+        this.lastCulledLayers = this.culledLayers;
+        this.lastStateSetups = this.stateSetups;
+        this.lastSharedStateSetups = this.sharedStateSetups;
+        this.lastStateCallsIssued = this.stateCallsIssued;
+        this.lastStateCallsElided = this.stateCallsElided;
+    }
+
+    public void layerRendered() {
+        this.layers++;
+    }
+
+    /**
+     * Counts layers skipped because a layer drawn after them covers the sky.
+     */
+    public void layersCulled(int count) {
+        this.culledLayers += count;
+    }
+
+    public void stateSetUp() {
+        this.stateSetups++;
+    }
+
+    /**
+     * Counts a layer that reused the state of the previous layer.
+     */
+    public void stateShared() {
+        this.sharedStateSetups++;
+    }
+
+    public void stateCallIssued() {
+        this.stateCallsIssued++;
+    }
+
+    /**
+     * Counts a state call skipped because it set the current value.
+     */
+    public void stateCallElided() {
+        this.stateCallsElided++;
+    }
+
+    public void compositeHit() {
+        this.compositeHits++;
+    }
+
+    public void compositeMiss() {
+        this.compositeMisses++;
+    }
+
+    public void streamFrameUploaded(long bytes) {
+        this.streamedFrames++;
+        this.streamedBytes += bytes;
+    }
+
+    public void streamFrameEvicted(long bytes) {
+        this.streamedFrames--;
+        this.streamedBytes -= bytes;
+    }
+
+    public void streamUnderrun() {
+        this.streamUnderruns++;
+    }
+
+    public int getLayers() {
+        return this.lastLayers;
+    }
+
+    public int getCulledLayers() {
+        return this.lastCulledLayers;
+    }
+
+    public int getStateSetups() {
+        return this.lastStateSetups;
+    }
+
+    public int getSharedStateSetups() {
+        return this.lastSharedStateSetups;
+    }
+
+    public int getStateCallsIssued() {
+        return this.lastStateCallsIssued;
+    }
+
+    public int getStateCallsElided() {
+        return this.lastStateCallsElided;
+    }
+
+    public long getCompositeHits() {
+        return this.compositeHits;
+    }
+
+    public long getCompositeMisses() {
+        return this.compositeMisses;
+    }
+
+    public int getStreamedFrames() {
+        return this.streamedFrames;
+    }
+
+    public long getStreamedBytes() {
+        return this.streamedBytes;
+    }
+
+    public long getStreamUnderruns() {
+        return this.streamUnderruns;
+    }
+}
@@ -0,0 +1,283 @@
+package dev.mord.forgeskybox.render;
+
+import com.mojang.blaze3d.systems.RenderSystem;
+import com.mojang.blaze3d.vertex.*;
+import com.mojang.math.Matrix4f;
+import com.mojang.math.Vector3f;
+import dev.mord.forgeskybox.util.object.Texture;
+import dev.mord.forgeskybox.util.object.Textures;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.util.Mth;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Cube face geometry uploaded once and shared by every skybox using the same UVs.
+ * The rotation of each face is baked into its vertices, so drawing a face only needs its texture
+ * and the pose of the skybox as the model view matrix. Only used from the render thread, the face and cube
+ * buffers are released when skyboxes are reloaded as their UVs come from the skyboxes.
+ */
+public final class SkyboxMeshes {
+    private static final BufferCache<FaceKey, VertexBuffer> FACES = new BufferCache<>(key -> bake(List.of(key)), VertexBuffer::close);
+    private static final BufferCache<List<FaceKey>, VertexBuffer> CUBES = new BufferCache<>(SkyboxMeshes::bake, VertexBuffer::close);
+    private static int generation;
+    private static VertexBuffer positionCube;
+    private static VertexBuffer arrayCube;
+    private static VertexBuffer sun;
+    private static VertexBuffer sunriseFan;
+    private static final VertexBuffer[] MOON_PHASES = new VertexBuffer[8];
+
+    private SkyboxMeshes() {
+    }
+
+    /**
+     * @return The buffers to draw the textures with. A single buffer holding the whole cube if all the faces
+     * share one texture, otherwise the six face buffers in the order of {@link Textures#byId(int)}.
+     */
+    public static VertexBuffer[] cube(Textures textures) {
+        RenderSystem.assertOnRenderThread();
+        return resolve(textures, FACES, CUBES, VertexBuffer[]::new);
+    }
+
+    /**
+     * Resolves the buffers of the textures from the caches, baking the ones drawn for the first time.
+     *
+     * @see #cube(Textures)
+     */
+    static <B> B[] resolve(Textures textures, BufferCache<FaceKey, B> faces, BufferCache<List<FaceKey>, B> cubes, IntFunction<B[]> newArray) {
+        if (isSingleTexture(textures)) {
+            B[] buffers = newArray.apply(1);
+            buffers[0] = cubes.get(cubeKey(textures));
+            return buffers;
+        }
+        B[] buffers = newArray.apply(6);
+        for (int i = 0; i < 6; i++) {
+            buffers[i] = faces.get(FaceKey.of(i, textures.byId(i)));
+        }
+        return buffers;
+    }
+
+    public static boolean isSingleTexture(Textures textures) {
+        ResourceLocation textureId = textures.byId(0).getTextureId();
+        for (int i = 1; i < 6; i++) {
+            if (!textureId.equals(textures.byId(i).getTextureId())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param face    The face, see {@link Textures#byId(int)}.
+     * @param texture The texture of the face, only its UVs are baked.
+     * @return The buffer of the face, uploaded on first use.
+     */
+    public static VertexBuffer face(int face, Texture texture) {
+        RenderSystem.assertOnRenderThread();
+        return FACES.get(FaceKey.of(face, texture));
+    }
+
+    /**
+     * Releases the face and cube buffers, on the render thread. Skyboxes still in use bake theirs again.
+     */
+    public static void releaseAll() {
+        RenderSystem.recordRenderCall(() -> {
+            FACES.releaseAll();
+            CUBES.releaseAll();
+            generation++;
+        });
+    }
+
+    /**
+     * @return A number changed whenever the face and cube buffers are released, buffers are only valid while it is the same.
+     */
+    public static int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @return The key of the buffer holding the whole cube, its faces in the order of {@link Textures#byId(int)}.
+     */
+    static List<FaceKey> cubeKey(Textures textures) {
+        List<FaceKey> keys = new ArrayList<>(6);
+        for (int i = 0; i < 6; i++) {
+            keys.add(FaceKey.of(i, textures.byId(i)));
+        }
+        return keys;
+    }
+
+    /**
+     * @return A cube of positions only, for shaders that derive everything else from the position.
+     */
+    public static VertexBuffer positionCube() {
+        RenderSystem.assertOnRenderThread();
+        if (positionCube == null) {
+            BufferBuilder bufferBuilder = Tesselator.getInstance().getBuilder();
+            bufferBuilder.begin(VertexFormat.Mode.QUADS, DefaultVertexFormat.POSITION);
+            for (int i = 0; i < 6; i++) {
+                PoseStack matrices = new PoseStack();
+                rotateFace(matrices, i);
+                Matrix4f matrix4f = matrices.last().pose();
+                bufferBuilder.vertex(matrix4f, -100.0F, -100.0F, -100.0F).endVertex();
+                bufferBuilder.vertex(matrix4f, -100.0F, -100.0F, 100.0F).endVertex();
+                bufferBuilder.vertex(matrix4f, 100.0F, -100.0F, 100.0F).endVertex();
+                bufferBuilder.vertex(matrix4f, 100.0F, -100.0F, -100.0F).endVertex();
+            }
+            bufferBuilder.end();
+            positionCube = new VertexBuffer();
+            positionCube.upload(bufferBuilder);
+        }
+        return positionCube;
+    }
+
+    /**
+     * @return A cube with full UVs on every face, the face offset by twice its id on U.
+     * @see SkyboxShaders#getArrayShader()
+     */
+    public static VertexBuffer arrayCube() {
+        RenderSystem.assertOnRenderThread();
+        if (arrayCube == null) {
+            BufferBuilder bufferBuilder = Tesselator.getInstance().getBuilder();
+            bufferBuilder.begin(VertexFormat.Mode.QUADS, DefaultVertexFormat.POSITION_TEX);
+            for (int i = 0; i < 6; i++) {
+                PoseStack matrices = new PoseStack();
+                rotateFace(matrices, i);
+                Matrix4f matrix4f = matrices.last().pose();
+                float minU = i * 2.0F;
+                float maxU = minU + 1.0F;
+                bufferBuilder.vertex(matrix4f, -100.0F, -100.0F, -100.0F).uv(minU, 0.0F).endVertex();
+                bufferBuilder.vertex(matrix4f, -100.0F, -100.0F, 100.0F).uv(minU, 1.0F).endVertex();
+                bufferBuilder.vertex(matrix4f, 100.0F, -100.0F, 100.0F).uv(maxU, 1.0F).endVertex();
+                bufferBuilder.vertex(matrix4f, 100.0F, -100.0F, -100.0F).uv(maxU, 0.0F).endVertex();
+            }
+            bufferBuilder.end();
+            arrayCube = new VertexBuffer();
+            arrayCube.upload(bufferBuilder);
+        }
+        return arrayCube;
+    }
+
+    /**
+     * @return The sun quad, facing down from the top of the sky.
+     */
+    public static VertexBuffer sun() {
+        RenderSystem.assertOnRenderThread();
+        if (sun == null) {
+            float s = 30.0F;
+            BufferBuilder bufferBuilder = Tesselator.getInstance().getBuilder();
+            bufferBuilder.begin(VertexFormat.Mode.QUADS, DefaultVertexFormat.POSITION_TEX);
+            bufferBuilder.vertex(-s, 100.0F, -s).uv(0.0F, 0.0F).endVertex();
+            bufferBuilder.vertex(s, 100.0F, -s).uv(1.0F, 0.0F).endVertex();
+            bufferBuilder.vertex(s, 100.0F, s).uv(1.0F, 1.0F).endVertex();
+            bufferBuilder.vertex(-s, 100.0F, s).uv(0.0F, 1.0F).endVertex();
+            bufferBuilder.end();
+            sun = new VertexBuffer();
+            sun.upload(bufferBuilder);
+        }
+        return sun;
+    }
+
+    /**
+     * @param phase The moon phase, mapped to the 4x2 layout of the moon phases texture.
+     * @return The moon quad of the phase, facing up from the bottom of the sky.
+     */
+    public static VertexBuffer moon(int phase) {
+        RenderSystem.assertOnRenderThread();
+        int index = Math.floorMod(phase, MOON_PHASES.length);
+        if (MOON_PHASES[index] == null) {
+            float s = 20.0F;
+            int column = index % 4;
+            int row = index / 4 % 2;
+            float minU = column / 4.0F;
+            float minV = row / 2.0F;
+            float maxU = (column + 1) / 4.0F;
+            float maxV = (row + 1) / 2.0F;
+            BufferBuilder bufferBuilder = Tesselator.getInstance().getBuilder();
+            bufferBuilder.begin(VertexFormat.Mode.QUADS, DefaultVertexFormat.POSITION_TEX);
+            bufferBuilder.vertex(-s, -100.0F, s).uv(maxU, maxV).endVertex();
+            bufferBuilder.vertex(s, -100.0F, s).uv(minU, maxV).endVertex();
+            bufferBuilder.vertex(s, -100.0F, -s).uv(minU, minV).endVertex();
+            bufferBuilder.vertex(-s, -100.0F, -s).uv(maxU, minV).endVertex();
+            bufferBuilder.end();
+            MOON_PHASES[index] = new VertexBuffer();
+            MOON_PHASES[index].upload(bufferBuilder);
+        }
+        return MOON_PHASES[index];
+    }
+
+    /**
+     * @return The sunrise fan in white at full height, fading out towards its edge. Tinted by the shader color
+     * and scaled on Z by the height of the sunrise.
+     */
+    public static VertexBuffer sunriseFan() {
+        RenderSystem.assertOnRenderThread();
+        if (sunriseFan == null) {
+            BufferBuilder bufferBuilder = Tesselator.getInstance().getBuilder();
+            bufferBuilder.begin(VertexFormat.Mode.TRIANGLE_FAN, DefaultVertexFormat.POSITION_COLOR);
+            bufferBuilder.vertex(0.0F, 100.0F, 0.0F).color(1.0F, 1.0F, 1.0F, 1.0F).endVertex();
+            for (int n = 0; n <= 16; ++n) {
+                float angle = (float) n * 6.2831855F / 16.0F;
+                float sin = Mth.sin(angle);
+                float cos = Mth.cos(angle);
+                bufferBuilder.vertex(sin * 120.0F, cos * 120.0F, -cos * 40.0F).color(1.0F, 1.0F, 1.0F, 0.0F).endVertex();
+            }
+            bufferBuilder.end();
+            sunriseFan = new VertexBuffer();
+            sunriseFan.upload(bufferBuilder);
+        }
+        return sunriseFan;
+    }
+
+    /**
+     * Draws a baked buffer with the current shader, textures and shader color.
+     */
+    public static void draw(VertexBuffer buffer, PoseStack matrices) {
+        buffer.drawWithShader(matrices.last().pose(), RenderSystem.getProjectionMatrix(), RenderSystem.getShader());
+    }
+
+    /**
+     * Rotates the bottom face of the cube onto the given face.
+     */
+    public static void rotateFace(PoseStack matrices, int face) {
+        if (face == 1) {
+            matrices.mulPose(Vector3f.XP.rotationDegrees(90.0F));
+        } else if (face == 2) {
+            matrices.mulPose(Vector3f.XP.rotationDegrees(-90.0F));
+            matrices.mulPose(Vector3f.YP.rotationDegrees(180.0F));
+        } else if (face == 3) {
+            matrices.mulPose(Vector3f.XP.rotationDegrees(180.0F));
+        } else if (face == 4) {
+            matrices.mulPose(Vector3f.ZP.rotationDegrees(90.0F));
+            matrices.mulPose(Vector3f.YP.rotationDegrees(-90.0F));
+        } else if (face == 5) {
+            matrices.mulPose(Vector3f.ZP.rotationDegrees(-90.0F));
+            matrices.mulPose(Vector3f.YP.rotationDegrees(90.0F));
+        }
+    }
+
+    private static VertexBuffer bake(List<FaceKey> keys) {
+        BufferBuilder bufferBuilder = Tesselator.getInstance().getBuilder();
+        bufferBuilder.begin(VertexFormat.Mode.QUADS, DefaultVertexFormat.POSITION_TEX);
+        for (FaceKey key : keys) {
+            PoseStack matrices = new PoseStack();
+            rotateFace(matrices, key.face());
+            Matrix4f matrix4f = matrices.last().pose();
+            bufferBuilder.vertex(matrix4f, -100.0F, -100.0F, -100.0F).uv(key.minU(), key.minV()).endVertex();
+            bufferBuilder.vertex(matrix4f, -100.0F, -100.0F, 100.0F).uv(key.minU(), key.maxV()).endVertex();
+            bufferBuilder.vertex(matrix4f, 100.0F, -100.0F, 100.0F).uv(key.maxU(), key.maxV()).endVertex();
+            bufferBuilder.vertex(matrix4f, 100.0F, -100.0F, -100.0F).uv(key.maxU(), key.minV()).endVertex();
+        }
+        bufferBuilder.end();
+        VertexBuffer buffer = new VertexBuffer();
+        buffer.upload(bufferBuilder);
+        return buffer;
+    }
+
+    record FaceKey(int face, float minU, float minV, float maxU, float maxV) {
+        static FaceKey of(int face, Texture texture) {
+            return new FaceKey(face, texture.getMinU(), texture.getMinV(), texture.getMaxU(), texture.getMaxV());
+        }
+    }
+}
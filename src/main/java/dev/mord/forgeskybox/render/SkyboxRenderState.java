@@ -0,0 +1,203 @@
+package dev.mord.forgeskybox.render;
+
+import com.mojang.blaze3d.platform.GlStateManager;
+import com.mojang.blaze3d.shaders.BlendMode;
+import com.mojang.blaze3d.systems.RenderSystem;
+import net.minecraft.client.renderer.ShaderInstance;
+import org.jetbrains.annotations.Nullable;
+import org.lwjgl.opengl.GL14;
+
+import java.util.function.Supplier;
+
+/**
+ * Tracks the render state set by skyboxes during the skybox pass and skips calls setting a value that is
+ * already current. The state is unknown when the pass begins, so the first call of each kind is always issued,
+ * and vanilla state is restored once when it ends. Outside the pass every call is issued.
+ * The shaders drawn with don't declare a blend mode, so the blend state set here is the one they draw with.
+ * Only used from the render thread.
+ */
+public final class SkyboxRenderState {
+    private static final int UNKNOWN = -1;
+    private static final BlendMode NO_SHADER_BLEND = new BlendMode();
+    @Nullable
+    private static RenderMetrics metrics;
+    private static int depthMask;
+    private static int blend;
+    private static int texture;
+    private static int cull;
+    private static int srcRgb;
+    private static int dstRgb;
+    private static int srcAlpha;
+    private static int dstAlpha;
+    private static int equation;
+    @Nullable
+    private static ShaderInstance shader;
+    private static boolean shaderColorKnown;
+    private static final float[] SHADER_COLOR = new float[4];
+
+    private SkyboxRenderState() {
+    }
+
+    /**
+     * Starts tracking, until {@link #end()}.
+     *
+     * @param metrics Counts the issued and skipped calls.
+     */
+    public static void begin(RenderMetrics metrics) {
+        RenderSystem.assertOnRenderThread();
+        SkyboxRenderState.metrics = metrics;
+        // a shader applies its blend mode only when it differs from the last one applied, once the last one is
+        // a shader without a blend mode the shaders of the pass leave the blend state alone
+        NO_SHADER_BLEND.apply();
+        invalidate();
+    }
+
+    /**
+     * Restores the state vanilla expects after the sky and stops tracking.
+     */
+    public static void end() {
+        depthMask(true);
+        texture(true);
+        blend(false);
+        blendEquation(GL14.GL_FUNC_ADD);
+        cull(true);
+        shaderColor(1.0F, 1.0F, 1.0F, 1.0F);
+        metrics = null;
+        invalidate();
+    }
+
+    /**
+     * Forgets the tracked state, call after changing state without going through this class.
+     */
+    public static void invalidate() {
+        depthMask = UNKNOWN;
+        texture = UNKNOWN;
+        cull = UNKNOWN;
+        shader = null;
+        shaderColorKnown = false;
+        blend = UNKNOWN;
+        srcRgb = UNKNOWN;
+        dstRgb = UNKNOWN;
+        srcAlpha = UNKNOWN;
+        dstAlpha = UNKNOWN;
+        equation = UNKNOWN;
+    }
+
+    public static void depthMask(boolean enabled) {
+        int value = enabled ? 1 : 0;
+        if (skip(depthMask == value)) {
+            return;
+        }
+        depthMask = value;
+        RenderSystem.depthMask(enabled);
+    }
+
+    public static void blend(boolean enabled) {
+        int value = enabled ? 1 : 0;
+        if (skip(blend == value)) {
+            return;
+        }
+        blend = value;
+        if (enabled) {
+            RenderSystem.enableBlend();
+        } else {
+            RenderSystem.disableBlend();
+        }
+    }
+
+    public static void texture(boolean enabled) {
+        int value = enabled ? 1 : 0;
+        if (skip(texture == value)) {
+            return;
+        }
+        texture = value;
+        if (enabled) {
+            RenderSystem.enableTexture();
+        } else {
+            RenderSystem.disableTexture();
+        }
+    }
+
+    public static void cull(boolean enabled) {
+        int value = enabled ? 1 : 0;
+        if (skip(cull == value)) {
+            return;
+        }
+        cull = value;
+        if (enabled) {
+            RenderSystem.enableCull();
+        } else {
+            RenderSystem.disableCull();
+        }
+    }
+
+    public static void defaultBlendFunc() {
+        blendFuncSeparate(GlStateManager.SourceFactor.SRC_ALPHA.value, GlStateManager.DestFactor.ONE_MINUS_SRC_ALPHA.value, GlStateManager.SourceFactor.ONE.value, GlStateManager.DestFactor.ZERO.value);
+    }
+
+    public static void blendFunc(int sFactor, int dFactor) {
+        blendFuncSeparate(sFactor, dFactor, sFactor, dFactor);
+    }
+
+    public static void blendFuncSeparate(int srcRgb, int dstRgb, int srcAlpha, int dstAlpha) {
+        if (skip(SkyboxRenderState.srcRgb == srcRgb && SkyboxRenderState.dstRgb == dstRgb && SkyboxRenderState.srcAlpha == srcAlpha && SkyboxRenderState.dstAlpha == dstAlpha)) {
+            return;
+        }
+        SkyboxRenderState.srcRgb = srcRgb;
+        SkyboxRenderState.dstRgb = dstRgb;
+        SkyboxRenderState.srcAlpha = srcAlpha;
+        SkyboxRenderState.dstAlpha = dstAlpha;
+        RenderSystem.blendFuncSeparate(srcRgb, dstRgb, srcAlpha, dstAlpha);
+    }
+
+    public static void blendEquation(int equation) {
+        if (skip(SkyboxRenderState.equation == equation)) {
+            return;
+        }
+        SkyboxRenderState.equation = equation;
+        RenderSystem.blendEquation(equation);
+    }
+
+    /**
+     * Sets the shader, compared by the instance it supplies.
+     */
+    public static void shader(Supplier<ShaderInstance> supplier) {
+        ShaderInstance instance = supplier.get();
+        if (skip(instance != null && shader == instance)) {
+            return;
+        }
+        shader = instance;
+        RenderSystem.setShader(supplier);
+    }
+
+    public static void shaderColor(float red, float green, float blue, float alpha) {
+        float[] color = SHADER_COLOR;
+        if (skip(shaderColorKnown && color[0] == red && color[1] == green && color[2] == blue && color[3] == alpha)) {
+            return;
+        }
+        shaderColorKnown = true;
+        color[0] = red;
+        color[1] = green;
+        color[2] = blue;
+        color[3] = alpha;
+        RenderSystem.setShaderColor(red, green, blue, alpha);
+    }
+
+    /**
+     * Counts the call and decides whether it is skipped.
+     *
+     * @param current Whether the call sets the current value.
+     */
+    private static boolean skip(boolean current) {
+        RenderMetrics metrics = SkyboxRenderState.metrics;
+        if (metrics == null) {
+            return false;
+        }
+        if (current) {
+            metrics.stateCallElided();
+            return true;
+        }
+        metrics.stateCallIssued();
+        return false;
+    }
+}
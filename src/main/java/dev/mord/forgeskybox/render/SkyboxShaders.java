@@ -0,0 +1,60 @@
+package dev.mord.forgeskybox.render;
+
+import com.mojang.blaze3d.vertex.DefaultVertexFormat;
+import dev.mord.forgeskybox.FabricSkyBoxesClient;
+import net.minecraft.client.renderer.ShaderInstance;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.client.event.RegisterShadersEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+
+/**
+ * The core shaders of the mod, reloaded with the vanilla ones.
+ */
+@Mod.EventBusSubscriber(modid = FabricSkyBoxesClient.MODID, bus = Mod.EventBusSubscriber.Bus.MOD, value = Dist.CLIENT)
+public class SkyboxShaders {
+    @Nullable
+    private static ShaderInstance cubemapShader;
+    @Nullable
+    private static ShaderInstance arrayShader;
+    @Nullable
+    private static ShaderInstance spriteSheetShader;
+
+    @SubscribeEvent
+    public static void onRegisterShaders(RegisterShadersEvent event) throws IOException {
+        event.registerShader(new ShaderInstance(event.getResourceManager(), new ResourceLocation(FabricSkyBoxesClient.MODID, "cubemap_skybox"), DefaultVertexFormat.POSITION), shader -> cubemapShader = shader);
+        event.registerShader(new ShaderInstance(event.getResourceManager(), new ResourceLocation(FabricSkyBoxesClient.MODID, "array_skybox"), DefaultVertexFormat.POSITION_TEX), shader -> arrayShader = shader);
+        event.registerShader(new ShaderInstance(event.getResourceManager(), new ResourceLocation(FabricSkyBoxesClient.MODID, "sprite_sheet_skybox"), DefaultVertexFormat.POSITION_TEX), shader -> spriteSheetShader = shader);
+    }
+
+    /**
+     * @return The shader sampling a cube map by the model space position, or {@code null} if it failed to load.
+     */
+    @Nullable
+    public static ShaderInstance getCubemapShader() {
+        return cubemapShader;
+    }
+
+    /**
+     * @return The shader sampling a texture array, the layer selected by the face baked into the mesh and the
+     * {@code Frame} uniform, or {@code null} if it failed to load.
+     * @see SkyboxMeshes#arrayCube()
+     */
+    @Nullable
+    public static ShaderInstance getArrayShader() {
+        return arrayShader;
+    }
+
+    /**
+     * @return The shader sampling the first texture at the UVs of the mesh shifted by the {@code FrameOffset}
+     * uniform, or {@code null} if it failed to load.
+     */
+    @Nullable
+    public static ShaderInstance getSpriteSheetShader() {
+        return spriteSheetShader;
+    }
+}
@@ -0,0 +1,303 @@
+package dev.mord.forgeskybox.render;
+
+import com.mojang.blaze3d.platform.NativeImage;
+import com.mojang.blaze3d.platform.TextureUtil;
+import com.mojang.blaze3d.systems.RenderSystem;
+import dev.mord.forgeskybox.FabricSkyBoxesClient;
+import dev.mord.forgeskybox.util.object.Textures;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import net.minecraft.Util;
+import net.minecraft.client.Minecraft;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.packs.resources.ResourceManager;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+import org.lwjgl.opengl.GL13;
+import org.lwjgl.opengl.GL30;
+
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * The frames of an animation streamed into a texture array with a fixed number of slots. Frames ahead of playback
+ * are decoded on the background executor and uploaded on the render thread while the upload budget of the frame
+ * lasts, evicting the least recently drawn frame behind playback. The slot of frame {@code n} holds its face
+ * {@code f} at layer {@code slot * 6 + f}. Only used from the render thread, released when skyboxes are reloaded.
+ */
+public class StreamingFrameArray {
+    private static final List<StreamingFrameArray> STREAMS = new ArrayList<>();
+    private static long uploadDeadline;
+
+    private final List<Textures> frames;
+    private final int framesAhead;
+    private final RenderMetrics metrics;
+    private final int[] slotFrames;
+    private final long[] slotLastUse;
+    private final Int2IntOpenHashMap slotsByFrame = new Int2IntOpenHashMap();
+    private final Int2ObjectOpenHashMap<CompletableFuture<TextureArray.FramePixels>> pending = new Int2ObjectOpenHashMap<>();
+    private int texture = -1;
+    private int width;
+    private int height;
+    private long useCounter;
+    /**
+     * The slot drawn last and the frame it held then, drawn again while the current frame isn't resident.
+     */
+    private int lastSlot = -1;
+    private int lastFrame = -1;
+    private boolean failed;
+    private boolean released;
+
+    private StreamingFrameArray(List<Textures> frames, int framesAhead, int residentFrames, RenderMetrics metrics) {
+        this.frames = frames;
+        this.framesAhead = Math.min(framesAhead, frames.size() - 1);
+        // every frame ahead of playback and the one drawn must fit, with a slot left to evict
+        int slots = Math.min(Math.max(residentFrames, this.framesAhead + 2), frames.size());
+        this.metrics = metrics;
+        this.slotFrames = new int[slots];
+        this.slotLastUse = new long[slots];
+        Arrays.fill(this.slotFrames, -1);
+        this.slotsByFrame.defaultReturnValue(-1);
+    }
+
+    /**
+     * @param frames         The frames of the animation, not empty.
+     * @param framesAhead    How many frames after the current one are decoded in advance.
+     * @param residentFrames How many frames may be resident at once, raised to hold every frame ahead.
+     * @param metrics        Counts resident frames, their size and underruns.
+     */
+    public static StreamingFrameArray create(List<Textures> frames, int framesAhead, int residentFrames, RenderMetrics metrics) {
+        RenderSystem.assertOnRenderThread();
+        StreamingFrameArray stream = new StreamingFrameArray(frames, framesAhead, residentFrames, metrics);
+        STREAMS.add(stream);
+        return stream;
+    }
+
+    /**
+     * Starts the upload budget shared by every stream for the current frame.
+     */
+    public static void beginFrame(int budgetMicros) {
+        uploadDeadline = System.nanoTime() + budgetMicros * 1000L;
+    }
+
+    /**
+     * Releases every stream, on the render thread. Skyboxes still in use create theirs again.
+     */
+    public static void releaseAll() {
+        RenderSystem.recordRenderCall(() -> {
+            for (StreamingFrameArray stream : STREAMS) {
+                stream.releaseResources();
+            }
+            STREAMS.clear();
+        });
+    }
+
+    /**
+     * Requests the frames ahead of playback and uploads the decoded ones. The current frame is uploaded
+     * as soon as it is decoded, the ones after it only while the upload budget lasts.
+     *
+     * @param frame The frame to draw.
+     * @return The slot to draw, the last drawn one if the frame isn't resident yet, or -1 if none is.
+     */
+    public int update(int frame) {
+        int count = this.frames.size();
+        this.dropStaleDecodes(frame);
+        for (int i = 0; i <= this.framesAhead; i++) {
+            int ahead = (frame + i) % count;
+            if (this.slotsByFrame.get(ahead) == -1 && !this.pending.containsKey(ahead)) {
+                this.pending.put(ahead, CompletableFuture.supplyAsync(() -> this.decode(ahead), Util.backgroundExecutor()));
+            }
+        }
+        for (int i = 0; i <= this.framesAhead && !this.failed; i++) {
+            int ahead = (frame + i) % count;
+            CompletableFuture<TextureArray.FramePixels> decode = this.pending.get(ahead);
+            if (decode == null || !decode.isDone()) {
+                continue;
+            }
+            if (i > 0 && System.nanoTime() > uploadDeadline) {
+                break;
+            }
+            this.pending.remove(ahead);
+            try {
+                this.upload(ahead, decode.join(), frame);
+            } catch (CompletionException e) {
+                FabricSkyBoxesClient.getLogger().error("Error streaming frame " + ahead + " of " + this.frames.get(0).getNorth().getTextureId(), e.getCause());
+                this.failed = true;
+            }
+        }
+        int slot = this.slotsByFrame.get(frame);
+        if (slot == -1) {
+            this.metrics.streamUnderrun();
+            // only if the slot wasn't reused for a frame ahead of playback
+            return this.lastSlot != -1 && this.slotFrames[this.lastSlot] == this.lastFrame ? this.lastSlot : -1;
+        }
+        this.slotLastUse[slot] = ++this.useCounter;
+        this.lastSlot = slot;
+        this.lastFrame = frame;
+        return slot;
+    }
+
+    /**
+     * @return The slot of the frame, or -1 if it isn't resident.
+     */
+    public int slotOf(int frame) {
+        return this.slotsByFrame.get(frame);
+    }
+
+    /**
+     * Binds the slots to the first texture unit.
+     */
+    public void bind() {
+        RenderSystem.activeTexture(GL13.GL_TEXTURE0);
+        GL11.glBindTexture(GL30.GL_TEXTURE_2D_ARRAY, this.texture);
+    }
+
+    /**
+     * @return Whether a frame couldn't be decoded or doesn't have the size of the others, the animation
+     * should then be drawn some other way.
+     */
+    public boolean isFailed() {
+        return this.failed;
+    }
+
+    public boolean isReleased() {
+        return this.released;
+    }
+
+    /**
+     * Frees the slots and stops decoding.
+     */
+    public void release() {
+        RenderSystem.assertOnRenderThread();
+        this.releaseResources();
+        STREAMS.remove(this);
+    }
+
+    private void releaseResources() {
+        for (CompletableFuture<TextureArray.FramePixels> decode : this.pending.values()) {
+            decode.cancel(false);
+        }
+        this.pending.clear();
+        for (int slot = 0; slot < this.slotFrames.length; slot++) {
+            if (this.slotFrames[slot] != -1) {
+                this.metrics.streamFrameEvicted(this.frameBytes());
+                this.slotFrames[slot] = -1;
+            }
+        }
+        this.slotsByFrame.clear();
+        if (this.texture != -1) {
+            TextureUtil.releaseTextureId(this.texture);
+            this.texture = -1;
+        }
+        this.released = true;
+    }
+
+    private TextureArray.FramePixels decode(int frame) {
+        ResourceManager resourceManager = Minecraft.getInstance().getResourceManager();
+        Map<ResourceLocation, NativeImage> images = new HashMap<>();
+        try {
+            return TextureArray.FramePixels.read(resourceManager, this.frames.get(frame), images);
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        } finally {
+            images.values().forEach(NativeImage::close);
+        }
+    }
+
+    private void upload(int frame, TextureArray.FramePixels pixels, int currentFrame) {
+        if (this.texture == -1) {
+            this.allocate(pixels.width(), pixels.height());
+        } else if (pixels.width() != this.width || pixels.height() != this.height) {
+            FabricSkyBoxesClient.getLogger().error("Frame " + frame + " of " + this.frames.get(0).getNorth().getTextureId() + " doesn't have the size of the others, not streaming it");
+            this.failed = true;
+            return;
+        }
+        int slot = this.findSlot(currentFrame);
+        if (slot == -1) {
+            return;
+        }
+        if (this.slotFrames[slot] != -1) {
+            this.slotsByFrame.remove(this.slotFrames[slot]);
+            this.metrics.streamFrameEvicted(this.frameBytes());
+        }
+        TextureArray.resetUnpackState();
+        GL11.glBindTexture(GL30.GL_TEXTURE_2D_ARRAY, this.texture);
+        for (int i = 0; i < 6; i++) {
+            GL12.glTexSubImage3D(GL30.GL_TEXTURE_2D_ARRAY, 0, 0, 0, slot * 6 + i, this.width, this.height, 1, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, pixels.faces()[i]);
+        }
+        GL11.glBindTexture(GL30.GL_TEXTURE_2D_ARRAY, 0);
+        this.slotFrames[slot] = frame;
+        this.slotsByFrame.put(frame, slot);
+        this.slotLastUse[slot] = ++this.useCounter;
+        this.metrics.streamFrameUploaded(this.frameBytes());
+    }
+
+    /**
+     * @return An empty slot, or the least recently drawn one whose frame isn't ahead of playback. The last drawn
+     * slot is kept while the current frame isn't resident, it is drawn in its place.
+     */
+    private int findSlot(int currentFrame) {
+        boolean keepLast = this.slotsByFrame.get(currentFrame) == -1;
+        int leastRecent = -1;
+        for (int slot = 0; slot < this.slotFrames.length; slot++) {
+            int frame = this.slotFrames[slot];
+            if (frame == -1) {
+                return slot;
+            }
+            if (keepLast && slot == this.lastSlot) {
+                continue;
+            }
+            if (!this.isAhead(frame, currentFrame) && (leastRecent == -1 || this.slotLastUse[slot] < this.slotLastUse[leastRecent])) {
+                leastRecent = slot;
+            }
+        }
+        return leastRecent;
+    }
+
+    /**
+     * Cancels the decodes of frames playback already passed.
+     */
+    private void dropStaleDecodes(int currentFrame) {
+        if (this.pending.isEmpty()) {
+            return;
+        }
+        ObjectIterator<Int2ObjectMap.Entry<CompletableFuture<TextureArray.FramePixels>>> iterator = this.pending.int2ObjectEntrySet().fastIterator();
+        while (iterator.hasNext()) {
+            Int2ObjectMap.Entry<CompletableFuture<TextureArray.FramePixels>> entry = iterator.next();
+            if (!this.isAhead(entry.getIntKey(), currentFrame)) {
+                entry.getValue().cancel(false);
+                iterator.remove();
+            }
+        }
+    }
+
+    private boolean isAhead(int frame, int currentFrame) {
+        return Math.floorMod(frame - currentFrame, this.frames.size()) <= this.framesAhead;
+    }
+
+    private void allocate(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.texture = TextureUtil.generateTextureId();
+        GL11.glBindTexture(GL30.GL_TEXTURE_2D_ARRAY, this.texture);
+        GL11.glTexParameteri(GL30.GL_TEXTURE_2D_ARRAY, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_LINEAR);
+        GL11.glTexParameteri(GL30.GL_TEXTURE_2D_ARRAY, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_LINEAR);
+        GL11.glTexParameteri(GL30.GL_TEXTURE_2D_ARRAY, GL11.GL_TEXTURE_WRAP_S, GL12.GL_CLAMP_TO_EDGE);
+        GL11.glTexParameteri(GL30.GL_TEXTURE_2D_ARRAY, GL11.GL_TEXTURE_WRAP_T, GL12.GL_CLAMP_TO_EDGE);
+        GL12.glTexImage3D(GL30.GL_TEXTURE_2D_ARRAY, 0, GL11.GL_RGBA8, width, height, this.slotFrames.length * 6, 0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, (IntBuffer) null);
+        GL11.glBindTexture(GL30.GL_TEXTURE_2D_ARRAY, 0);
+    }
+
+    private long frameBytes() {
+        return 6L * 4L * this.width * this.height;
+    }
+}
@@ -0,0 +1,262 @@
+package dev.mord.forgeskybox.render;
+
+import com.mojang.blaze3d.platform.GlStateManager;
+import com.mojang.blaze3d.platform.NativeImage;
+import com.mojang.blaze3d.systems.RenderSystem;
+import dev.mord.forgeskybox.FabricSkyBoxesClient;
+import dev.mord.forgeskybox.util.object.Texture;
+import dev.mord.forgeskybox.util.object.Textures;
+import net.minecraft.Util;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.renderer.texture.AbstractTexture;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.packs.resources.Resource;
+import net.minecraft.server.packs.resources.ResourceManager;
+import org.jetbrains.annotations.Nullable;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+import org.lwjgl.opengl.GL13;
+import org.lwjgl.opengl.GL30;
+
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Every face of every frame of an animation uploaded into one texture array, the face {@code f} of the
+ * frame {@code n} at layer {@code n * 6 + f}. Decoded in the background once per animation, uploaded on the render
+ * thread and released when skyboxes are reloaded. Animations with more layers than the driver supports fail to load.
+ */
+public class TextureArray extends AbstractTexture {
+    private static final Map<List<Textures>, TextureArray> LOADED = new IdentityHashMap<>();
+    private final List<Textures> frames;
+    @Nullable
+    private CompletableFuture<Layers> decode;
+    private boolean loaded;
+    private boolean failed;
+    private boolean released;
+
+    public TextureArray(List<Textures> frames) {
+        this.frames = frames;
+    }
+
+    /**
+     * @return The array of the frames, decoded in the background on first use. Call {@link #update()} and
+     * check {@link #isLoaded()} before drawing it.
+     */
+    public static TextureArray getOrLoad(List<Textures> frames) {
+        RenderSystem.assertOnRenderThread();
+        return LOADED.computeIfAbsent(frames, key -> {
+            TextureArray texture = new TextureArray(frames);
+            int maxLayers = GL11.glGetInteger(GL30.GL_MAX_ARRAY_TEXTURE_LAYERS);
+            if (frames.isEmpty()) {
+                FabricSkyBoxesClient.getLogger().error("Error loading an animation into a texture array, it has no frames");
+                texture.failed = true;
+            } else if (frames.size() * 6 > maxLayers) {
+                // kept, so the skybox draws its frames from their textures instead of trying again every frame
+                FabricSkyBoxesClient.getLogger().warn("The animation of " + frames.get(0).getNorth().getTextureId() + " needs " + frames.size() * 6 + " texture array layers, only " + maxLayers + " are supported. Drawing its frames one by one");
+                texture.failed = true;
+            } else {
+                ResourceManager resourceManager = Minecraft.getInstance().getResourceManager();
+                texture.decode = CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return texture.decode(resourceManager);
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                }, Util.backgroundExecutor());
+            }
+            return texture;
+        });
+    }
+
+    /**
+     * Releases every array, on the render thread. Skyboxes still in use load theirs again.
+     */
+    public static void releaseAll() {
+        RenderSystem.recordRenderCall(() -> {
+            for (TextureArray texture : LOADED.values()) {
+                if (texture.decode != null) {
+                    texture.decode.cancel(false);
+                    texture.decode = null;
+                }
+                texture.releaseId();
+                texture.released = true;
+            }
+            LOADED.clear();
+        });
+    }
+
+    /**
+     * Uploads the frames once they are decoded.
+     */
+    public void update() {
+        RenderSystem.assertOnRenderThread();
+        if (this.decode == null || !this.decode.isDone()) {
+            return;
+        }
+        CompletableFuture<Layers> decode = this.decode;
+        this.decode = null;
+        try {
+            Layers layers = decode.join();
+            this.upload(layers.pixels(), layers.width(), layers.height());
+        } catch (CompletionException e) {
+            // kept, so a broken skybox doesn't try again every frame
+            FabricSkyBoxesClient.getLogger().error("Error loading the animation frames of " + this.frames.get(0).getNorth().getTextureId() + " into a texture array", e.getCause());
+            this.failed = true;
+        }
+    }
+
+    public boolean isLoaded() {
+        return this.loaded;
+    }
+
+    /**
+     * @return Whether the frames can't be loaded into the array, the animation should then be drawn some other way.
+     */
+    public boolean isFailed() {
+        return this.failed;
+    }
+
+    public boolean isReleased() {
+        return this.released;
+    }
+
+    @Override
+    public void load(ResourceManager resourceManager) throws IOException {
+        Layers layers = this.decode(resourceManager);
+        if (!RenderSystem.isOnRenderThreadOrInit()) {
+            RenderSystem.recordRenderCall(() -> this.upload(layers.pixels(), layers.width(), layers.height()));
+        } else {
+            this.upload(layers.pixels(), layers.width(), layers.height());
+        }
+    }
+
+    private Layers decode(ResourceManager resourceManager) throws IOException {
+        if (this.frames.isEmpty()) {
+            throw new IOException("The animation has no frames");
+        }
+        // sprite sheets hold the faces of a frame in one image, close each image after the last frame using it
+        Map<ResourceLocation, Integer> lastUse = new HashMap<>();
+        for (int frame = 0; frame < this.frames.size(); frame++) {
+            for (int i = 0; i < 6; i++) {
+                lastUse.put(this.frames.get(frame).byId(i).getTextureId(), frame);
+            }
+        }
+        int[][] pixels = new int[this.frames.size() * 6][];
+        int width = -1;
+        int height = -1;
+        Map<ResourceLocation, NativeImage> images = new HashMap<>();
+        try {
+            for (int frame = 0; frame < this.frames.size(); frame++) {
+                FramePixels framePixels = FramePixels.read(resourceManager, this.frames.get(frame), images);
+                if (width != -1 && (framePixels.width() != width || framePixels.height() != height)) {
+                    throw new IOException("Animation frames must have the same size, frame " + frame + " is " + framePixels.width() + "x" + framePixels.height());
+                }
+                width = framePixels.width();
+                height = framePixels.height();
+                System.arraycopy(framePixels.faces(), 0, pixels, frame * 6, 6);
+                int current = frame;
+                images.entrySet().removeIf(entry -> {
+                    if (lastUse.get(entry.getKey()) == current) {
+                        entry.getValue().close();
+                        return true;
+                    }
+                    return false;
+                });
+            }
+        } finally {
+            images.values().forEach(NativeImage::close);
+        }
+        return new Layers(width, height, pixels);
+    }
+
+    private void upload(int[][] pixels, int width, int height) {
+        GL11.glBindTexture(GL30.GL_TEXTURE_2D_ARRAY, this.getId());
+        GL11.glTexParameteri(GL30.GL_TEXTURE_2D_ARRAY, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_LINEAR);
+        GL11.glTexParameteri(GL30.GL_TEXTURE_2D_ARRAY, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_LINEAR);
+        GL11.glTexParameteri(GL30.GL_TEXTURE_2D_ARRAY, GL11.GL_TEXTURE_WRAP_S, GL12.GL_CLAMP_TO_EDGE);
+        GL11.glTexParameteri(GL30.GL_TEXTURE_2D_ARRAY, GL11.GL_TEXTURE_WRAP_T, GL12.GL_CLAMP_TO_EDGE);
+        resetUnpackState();
+        GL12.glTexImage3D(GL30.GL_TEXTURE_2D_ARRAY, 0, GL11.GL_RGBA8, width, height, pixels.length, 0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, (IntBuffer) null);
+        for (int layer = 0; layer < pixels.length; layer++) {
+            GL12.glTexSubImage3D(GL30.GL_TEXTURE_2D_ARRAY, 0, 0, 0, layer, width, height, 1, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, pixels[layer]);
+        }
+        GL11.glBindTexture(GL30.GL_TEXTURE_2D_ARRAY, 0);
+        this.loaded = true;
+    }
+
+    /**
+     * Native images leave their unpack state behind, reset it before uploading int arrays.
+     */
+    static void resetUnpackState() {
+        GlStateManager._pixelStore(GL11.GL_UNPACK_ROW_LENGTH, 0);
+        GlStateManager._pixelStore(GL11.GL_UNPACK_SKIP_PIXELS, 0);
+        GlStateManager._pixelStore(GL11.GL_UNPACK_SKIP_ROWS, 0);
+        GlStateManager._pixelStore(GL11.GL_UNPACK_ALIGNMENT, 4);
+    }
+
+    /**
+     * Binds the array to the first texture unit.
+     */
+    public void bindArray() {
+        RenderSystem.activeTexture(GL13.GL_TEXTURE0);
+        GL11.glBindTexture(GL30.GL_TEXTURE_2D_ARRAY, this.getId());
+    }
+
+    public static void unbindArray() {
+        RenderSystem.activeTexture(GL13.GL_TEXTURE0);
+        GL11.glBindTexture(GL30.GL_TEXTURE_2D_ARRAY, 0);
+    }
+
+    /**
+     * Every layer of the array, in order.
+     */
+    private record Layers(int width, int height, int[][] pixels) {
+    }
+
+    /**
+     * The six faces of one animation frame, cropped from their textures in the order of {@link Textures#byId(int)}.
+     */
+    record FramePixels(int width, int height, int[][] faces) {
+        /**
+         * @param images The images already read, reused and added to. The caller closes them.
+         */
+        static FramePixels read(ResourceManager resourceManager, Textures frame, Map<ResourceLocation, NativeImage> images) throws IOException {
+            int[][] faces = new int[6][];
+            int width = -1;
+            int height = -1;
+            for (int i = 0; i < 6; i++) {
+                Texture face = frame.byId(i);
+                NativeImage image = images.get(face.getTextureId());
+                if (image == null) {
+                    try (Resource resource = resourceManager.getResource(face.getTextureId())) {
+                        image = NativeImage.read(resource.getInputStream());
+                    }
+                    images.put(face.getTextureId(), image);
+                }
+                int minX = Math.round(face.getMinU() * image.getWidth());
+                int minY = Math.round(face.getMinV() * image.getHeight());
+                int faceWidth = Math.round(face.getMaxU() * image.getWidth()) - minX;
+                int faceHeight = Math.round(face.getMaxV() * image.getHeight()) - minY;
+                if (faceWidth <= 0 || faceHeight <= 0 || (width != -1 && (faceWidth != width || faceHeight != height))) {
+                    throw new IOException("Animation faces must have the same size, " + face.getTextureId() + " is " + faceWidth + "x" + faceHeight);
+                }
+                width = faceWidth;
+                height = faceHeight;
+                faces[i] = new int[width * height];
+                for (int y = 0; y < height; y++) {
+                    for (int x = 0; x < width; x++) {
+                        faces[i][y * width + x] = image.getPixelRGBA(minX + x, minY + y);
+                    }
+                }
+            }
+            return new FramePixels(width, height, faces);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package dev.mord.forgeskybox.render;
+
+import com.mojang.blaze3d.platform.NativeImage;
+import dev.mord.forgeskybox.FabricSkyBoxesClient;
+import dev.mord.forgeskybox.util.object.Texture;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.packs.resources.Resource;
+import net.minecraft.server.packs.resources.ResourceManager;
+import net.minecraft.util.Mth;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Whether skybox textures are fully opaque, scanned once per texture region when skyboxes are loaded
+ * and cleared when they are reloaded. Each texture is decoded once for all of its regions.
+ */
+public final class TextureOpacity {
+    private static final Map<Region, Boolean> OPAQUE = new HashMap<>();
+
+    private TextureOpacity() {
+    }
+
+    /**
+     * @return Whether every pixel in every region has full alpha. Unreadable textures aren't opaque.
+     */
+    public static synchronized boolean areOpaque(ResourceManager resourceManager, List<Texture> regions) {
+        Map<ResourceLocation, List<Texture>> unscanned = new LinkedHashMap<>();
+        for (Texture region : regions) {
+            Boolean opaque = OPAQUE.get(Region.of(region));
+            if (opaque == null) {
+                unscanned.computeIfAbsent(region.getTextureId(), textureId -> new ArrayList<>()).add(region);
+            } else if (!opaque) {
+                return false;
+            }
+        }
+        boolean opaque = true;
+        for (Map.Entry<ResourceLocation, List<Texture>> entry : unscanned.entrySet()) {
+            opaque &= scan(resourceManager, entry.getKey(), entry.getValue());
+        }
+        return opaque;
+    }
+
+    public static synchronized void clear() {
+        OPAQUE.clear();
+    }
+
+    /**
+     * Decodes the texture once and scans each of its regions.
+     *
+     * @return Whether all the regions are opaque.
+     */
+    private static boolean scan(ResourceManager resourceManager, ResourceLocation textureId, List<Texture> regions) {
+        boolean opaque = true;
+        try (Resource resource = resourceManager.getResource(textureId); NativeImage image = NativeImage.read(resource.getInputStream())) {
+            for (Texture region : regions) {
+                boolean regionOpaque = !image.format().hasAlpha() || isOpaque(image, region);
+                OPAQUE.put(Region.of(region), regionOpaque);
+                opaque &= regionOpaque;
+            }
+        } catch (IOException e) {
+            FabricSkyBoxesClient.getLogger().warn("Error reading " + textureId + " to check its opacity", e);
+            for (Texture region : regions) {
+                OPAQUE.put(Region.of(region), false);
+            }
+            return false;
+        }
+        return opaque;
+    }
+
+    private static boolean isOpaque(NativeImage image, Texture texture) {
+        int minX = Mth.clamp(Math.round(texture.getMinU() * image.getWidth()), 0, image.getWidth());
+        int minY = Mth.clamp(Math.round(texture.getMinV() * image.getHeight()), 0, image.getHeight());
+        int maxX = Mth.clamp(Math.round(texture.getMaxU() * image.getWidth()), 0, image.getWidth());
+        int maxY = Mth.clamp(Math.round(texture.getMaxV() * image.getHeight()), 0, image.getHeight());
+        for (int y = minY; y < maxY; y++) {
+            for (int x = minX; x < maxX; x++) {
+                // ABGR
+                if ((image.getPixelRGBA(x, y) >>> 24) != 0xFF) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private record Region(ResourceLocation textureId, float minU, float minV, float maxU, float maxV) {
+        private static Region of(Texture texture) {
+            return new Region(texture.getTextureId(), texture.getMinU(), texture.getMinV(), texture.getMaxU(), texture.getMaxV());
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package dev.mord.forgeskybox.render;
+
+import com.mojang.blaze3d.systems.RenderSystem;
+import dev.mord.forgeskybox.mixin.skybox.TextureManagerAccess;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.renderer.texture.AbstractTexture;
+import net.minecraft.client.renderer.texture.SimpleTexture;
+import net.minecraft.client.renderer.texture.TextureManager;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.packs.resources.ResourceManager;
+import org.jetbrains.annotations.Nullable;
+import org.lwjgl.opengl.GL11;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Skybox textures loaded through the texture manager, counted against the skyboxes referencing them.
+ * A texture is loaded when its first skybox acquires it and its video memory is freed when its last one
+ * releases it. Only textures read from resources are managed, generated ones like face atlases are left alone.
+ * Textures something else already loaded are counted but never freed, only the ones loaded here are.
+ * Freed textures leave the texture manager, so resource reloads don't load them again behind the residency's back.
+ * Only used from the render thread, released when skyboxes are reloaded.
+ */
+public final class TextureResidency {
+    private static final Map<ResourceLocation, Entry> ENTRIES = new HashMap<>();
+    private static long residentBytes;
+    private static int generation;
+
+    private TextureResidency() {
+    }
+
+    /**
+     * References the textures, loading the ones no other skybox references.
+     *
+     * @return The size of the textures in video memory.
+     */
+    public static long acquire(List<ResourceLocation> textureIds) {
+        RenderSystem.assertOnRenderThread();
+        TextureManager textureManager = Minecraft.getInstance().getTextureManager();
+        ResourceManager resourceManager = Minecraft.getInstance().getResourceManager();
+        long bytes = 0;
+        for (ResourceLocation textureId : textureIds) {
+            Entry entry = ENTRIES.get(textureId);
+            if (entry == null) {
+                if (!resourceManager.hasResource(textureId)) {
+                    continue;
+                }
+                entry = new Entry();
+                ENTRIES.put(textureId, entry);
+            }
+            if (entry.references++ == 0) {
+                AbstractTexture texture = textureManager.getTexture(textureId, null);
+                if (texture == null) {
+                    texture = new SimpleTexture(textureId);
+                    textureManager.register(textureId, texture);
+                    entry.owned = texture;
+                } else {
+                    // something else loaded it, it is used as is
+                    entry.owned = null;
+                }
+                entry.bytes = sizeOf(texture);
+                residentBytes += entry.bytes;
+            }
+            bytes += entry.bytes;
+        }
+        return bytes;
+    }
+
+    /**
+     * Drops the references of a skybox, freeing the textures no other skybox references.
+     */
+    public static void release(List<ResourceLocation> textureIds) {
+        RenderSystem.assertOnRenderThread();
+        TextureManager textureManager = Minecraft.getInstance().getTextureManager();
+        for (ResourceLocation textureId : textureIds) {
+            Entry entry = ENTRIES.get(textureId);
+            if (entry == null || entry.references == 0 || --entry.references > 0) {
+                continue;
+            }
+            if (entry.isOwned(textureManager, textureId)) {
+                unregister(textureManager, textureId, entry);
+            }
+            residentBytes -= entry.bytes;
+            entry.bytes = 0;
+        }
+    }
+
+    /**
+     * Frees every referenced texture loaded here, the skyboxes referencing them were discarded. Skyboxes still in use
+     * acquire theirs again.
+     */
+    public static void releaseAll() {
+        RenderSystem.recordRenderCall(() -> {
+            TextureManager textureManager = Minecraft.getInstance().getTextureManager();
+            ENTRIES.forEach((textureId, entry) -> {
+                if (entry.references > 0 && entry.isOwned(textureManager, textureId)) {
+                    unregister(textureManager, textureId, entry);
+                }
+                entry.references = 0;
+                entry.bytes = 0;
+            });
+            residentBytes = 0;
+            generation++;
+        });
+    }
+
+    /**
+     * @return A number changed whenever every texture is released, acquired textures are only resident while it is the same.
+     */
+    public static int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @return The size in video memory of every texture currently referenced, counting shared textures once.
+     */
+    public static long getResidentBytes() {
+        return residentBytes;
+    }
+
+    /**
+     * Frees the texture and removes it from the texture manager, acquiring it again registers a new one.
+     */
+    private static void unregister(TextureManager textureManager, ResourceLocation textureId, Entry entry) {
+        textureManager.release(textureId);
+        // release only frees the texture id, a texture left registered would be loaded again by the next reload
+        // and any later lookup would bind an empty texture
+        ((TextureManagerAccess) textureManager).getByPath().remove(textureId, entry.owned);
+        entry.owned = null;
+    }
+
+    private static long sizeOf(AbstractTexture texture) {
+        RenderSystem.bindTexture(texture.getId());
+        int width = GL11.glGetTexLevelParameteri(GL11.GL_TEXTURE_2D, 0, GL11.GL_TEXTURE_WIDTH);
+        int height = GL11.glGetTexLevelParameteri(GL11.GL_TEXTURE_2D, 0, GL11.GL_TEXTURE_HEIGHT);
+        // RGBA
+        return 4L * width * height;
+    }
+
+    private static final class Entry {
+        private int references;
+        private long bytes;
+        /**
+         * The texture registered here, {@code null} if the texture was loaded by something else.
+         */
+        @Nullable
+        private AbstractTexture owned;
+
+        /**
+         * @return Whether the registered texture is still the one loaded here, textures registered by something else are never freed.
+         */
+        private boolean isOwned(TextureManager textureManager, ResourceLocation textureId) {
+            return this.owned != null && textureManager.getTexture(textureId, null) == this.owned;
+        }
+    }
+}
@@ -4,7 +4,20 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonObject;
 import dev.mord.forgeskybox.FabricSkyBoxesClient;
+import dev.mord.forgeskybox.SkyboxConfig;
 import dev.mord.forgeskybox.SkyboxManager;
+import dev.mord.forgeskybox.render.CubemapTexture;
+import dev.mord.forgeskybox.render.FaceAtlases;
+import dev.mord.forgeskybox.render.SkyboxMeshes;
+import dev.mord.forgeskybox.render.StreamingFrameArray;
+import dev.mord.forgeskybox.render.TextureArray;
+import dev.mord.forgeskybox.render.TextureOpacity;
+import dev.mord.forgeskybox.render.TextureResidency;
+import dev.mord.forgeskybox.skyboxes.AbstractSkybox;
+import dev.mord.forgeskybox.skyboxes.textured.AnimatedSquareTexturedSkybox;
+import dev.mord.forgeskybox.skyboxes.textured.SquareTexturedSkybox;
+import dev.mord.forgeskybox.skyboxes.textured.TexturedSkybox;
+import dev.mord.forgeskybox.util.JsonObjectWrapper;
 import net.minecraft.client.Minecraft;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.server.packs.resources.Resource;
@@ -29,6 +42,13 @@ public class SkyboxResourceListener {
 
         // clear registered skyboxes on reload
         skyboxManager.clearSkyboxes();
+        FaceAtlases.releaseAll();
+        CubemapTexture.releaseAll();
+        TextureArray.releaseAll();
+        StreamingFrameArray.releaseAll();
+        SkyboxMeshes.releaseAll();
+        TextureOpacity.clear();
+        TextureResidency.releaseAll();
 
         // load new skyboxes
         Collection<ResourceLocation> resources = manager.listResources("sky", string -> string.endsWith(".json"));
@@ -37,11 +57,29 @@ public class SkyboxResourceListener {
             try {
                 Resource resource = manager.getResource(id);
                 JsonObject json = GSON.fromJson(new InputStreamReader(resource.getInputStream()), JsonObject.class);
-                skyboxManager.addSkybox(id, json);
+                AbstractSkybox skybox = SkyboxManager.parseSkyboxJson(id, new JsonObjectWrapper(json));
+                if (skybox == null) {
+                    continue;
+                }
+                if (skybox instanceof TexturedSkybox texturedSkybox) {
+                    texturedSkybox.scanOpacity(manager);
+                }
+                if (SkyboxConfig.stitchFaces) {
+                    stitchFaces(manager, id, skybox);
+                }
+                skyboxManager.addSkybox(skybox);
             } catch (IOException e) {
                 FabricSkyBoxesClient.getLogger().error("Error reading skybox " + id.toString());
                 e.printStackTrace();
             }
         }
     }
+
+    private static void stitchFaces(ResourceManager manager, ResourceLocation id, AbstractSkybox skybox) {
+        // animated skyboxes swap their textures every frame
+        if (skybox instanceof SquareTexturedSkybox squareSkybox && !(skybox instanceof AnimatedSquareTexturedSkybox)
+                && squareSkybox.textures != null && !SkyboxMeshes.isSingleTexture(squareSkybox.textures)) {
+            FaceAtlases.stitch(manager, id, squareSkybox.textures, textures -> squareSkybox.textures = textures);
+        }
+    }
 }
@@ -1,33 +1,29 @@
 package dev.mord.forgeskybox.skyboxes;
 
 import com.google.common.collect.Lists;
-import com.google.common.collect.Range;
 import com.mojang.blaze3d.platform.GlStateManager;
 import com.mojang.blaze3d.systems.RenderSystem;
 import com.mojang.blaze3d.vertex.*;
 import com.mojang.math.Matrix4f;
+import com.mojang.math.Quaternion;
 import com.mojang.math.Vector3f;
 import dev.mord.forgeskybox.SkyboxManager;
 import dev.mord.forgeskybox.mixin.skybox.WorldRendererAccess;
-import dev.mord.forgeskybox.util.Utils;
+import dev.mord.forgeskybox.render.SkyboxMeshes;
+import dev.mord.forgeskybox.render.SkyboxRenderState;
+import dev.mord.forgeskybox.util.EnvironmentSnapshot;
 import dev.mord.forgeskybox.util.object.*;
 import net.minecraft.client.Camera;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.multiplayer.ClientLevel;
-import net.minecraft.client.player.LocalPlayer;
-import net.minecraft.client.renderer.DimensionSpecialEffects;
 import net.minecraft.client.renderer.GameRenderer;
-import net.minecraft.core.Registry;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.util.Mth;
-import net.minecraft.world.effect.MobEffects;
-import net.minecraft.world.entity.LivingEntity;
-import net.minecraft.world.level.biome.Biome;
-import net.minecraft.world.level.material.FogType;
+import org.jetbrains.annotations.Nullable;
+import org.lwjgl.opengl.GL14;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Objects;
 import java.util.stream.Collectors;
 
 /**
@@ -60,6 +56,24 @@ public abstract class AbstractSkybox {
     protected List<MinMaxEntry> yRanges = Lists.newArrayList();
     protected List<MinMaxEntry> zRanges = Lists.newArrayList();
     protected List<MinMaxEntry> xRanges = Lists.newArrayList();
+    /**
+     * The conditions above compiled into a predicate pipeline.
+     *
+     * @see #compileConditions()
+     */
+    protected transient CompiledConditions compiledConditions;
+    private transient CompiledConditions.Type rejectedCondition;
+    /**
+     * The alpha at the current and the previous client tick, only updated when conditions are evaluated per tick.
+     */
+    private transient float tickAlpha;
+    private transient float lastTickAlpha;
+    /**
+     * The sun and moon are rotated around X after turning the sky to face east, like in vanilla.
+     */
+    private static final Quaternion CELESTIAL_TILT = Vector3f.YP.rotationDegrees(-90.0F);
+    private final transient Quaternion celestialRotation = Quaternion.ONE.copy();
+    private final transient Quaternion timeRotation = Quaternion.ONE.copy();
 
     /**
      * The main render method for a skybox.
@@ -74,6 +88,7 @@ public abstract class AbstractSkybox {
     public abstract void render(WorldRendererAccess worldRendererAccess, PoseStack matrices, Matrix4f matrix4f, float tickDelta, Camera camera, boolean thickFog);
 
     protected AbstractSkybox() {
+        this.compileConditions();
     }
 
     protected AbstractSkybox(DefaultProperties properties, Conditions conditions, Decorations decorations) {
@@ -91,72 +106,63 @@ public abstract class AbstractSkybox {
         this.zRanges = conditions.getZRanges();
         this.xRanges = conditions.getXRanges();
         this.decorations = decorations;
+        this.compileConditions();
+    }
+
+    /**
+     * Compiles the conditions of this skybox. Must be called again after the condition fields are modified.
+     */
+    protected final void compileConditions() {
+        this.compiledConditions = CompiledConditions.compile(this.worlds, this.biomes, this.weather, this.xRanges, this.yRanges, this.zRanges);
     }
 
     /**
-     * Calculates the alpha value for the current time and conditions and returns it.
+     * Calculates the alpha value for the given environment and returns it.
      *
+     * @param environment The environment captured for the current frame.
      * @return The new alpha value.
      */
-    public final float updateAlpha() {
-        if (!fade.isAlwaysOn()) {
-            int currentTime = (int) (Objects.requireNonNull(Minecraft.getInstance().level).getDayTime() % 24000); // modulo so that it's bound to 24000
-            int durationIn = Utils.getTicksBetween(this.fade.getStartFadeIn(), this.fade.getEndFadeIn());
-            int durationOut = Utils.getTicksBetween(this.fade.getStartFadeOut(), this.fade.getEndFadeOut());
-
-            int startFadeIn = this.fade.getStartFadeIn() % 24000;
-            int endFadeIn = this.fade.getEndFadeIn() % 24000;
-
-            if (endFadeIn < startFadeIn) {
-                endFadeIn += 24000;
-            }
-
-            int startFadeOut = this.fade.getStartFadeOut() % 24000;
-            int endFadeOut = this.fade.getEndFadeOut() % 24000;
-
-            if (startFadeOut < endFadeIn) {
-                startFadeOut += 24000;
-            }
-
-            if (endFadeOut < startFadeOut) {
-                endFadeOut += 24000;
-            }
-
-            int tempInTime = currentTime;
-
-            if (tempInTime < startFadeIn) {
-                tempInTime += 24000;
-            }
-
-            int tempFullTime = currentTime;
-
-            if (tempFullTime < endFadeIn) {
-                tempFullTime += 24000;
-            }
-
-            int tempOutTime = currentTime;
-
-            if (tempOutTime < startFadeOut) {
-                tempOutTime += 24000;
-            }
-
-            float maxPossibleAlpha;
-
-            if (startFadeIn < tempInTime && endFadeIn >= tempInTime) {
-                maxPossibleAlpha = 1f - (((float) (endFadeIn - tempInTime)) / durationIn); // fading in
+    public final float updateAlpha(EnvironmentSnapshot environment) {
+        this.alpha = this.nextAlpha(environment, this.alpha);
+        return this.alpha;
+    }
 
-            } else if (endFadeIn < tempFullTime && startFadeOut >= tempFullTime) {
-                maxPossibleAlpha = 1f; // fully faded in
+    /**
+     * Advances the alpha of this skybox by one client tick. Used when conditions are evaluated per tick,
+     * the alpha used for rendering is then obtained with {@link #interpolateAlpha(float)}.
+     *
+     * @param environment The environment captured for the current tick.
+     */
+    public final void tickAlpha(EnvironmentSnapshot environment) {
+        this.lastTickAlpha = this.tickAlpha;
+        this.tickAlpha = this.nextAlpha(environment, this.tickAlpha);
+    }
 
-            } else if (startFadeOut < tempOutTime && endFadeOut >= tempOutTime) {
-                maxPossibleAlpha = (float) (endFadeOut - tempOutTime) / durationOut; // fading out
+    /**
+     * Interpolates the alpha of this skybox between the last two ticks.
+     *
+     * @param tickDelta The current tick delta.
+     * @return The new alpha value.
+     */
+    public final float interpolateAlpha(float tickDelta) {
+        this.alpha = Mth.lerp(tickDelta, this.lastTickAlpha, this.tickAlpha);
+        return this.alpha;
+    }
 
-            } else {
-                maxPossibleAlpha = 0f; // default not showing
-            }
+    /**
+     * Fades this skybox out instantly, used when it stops being evaluated because the player left its world.
+     */
+    public final void resetAlpha() {
+        this.alpha = 0f;
+        this.tickAlpha = 0f;
+        this.lastTickAlpha = 0f;
+    }
 
-            maxPossibleAlpha *= maxAlpha;
-            if (checkBiomes() && checkXRanges() && checkYRanges() && checkZRanges() && checkWeather() && checkEffect()) { // check if environment is invalid
+    private float nextAlpha(EnvironmentSnapshot environment, float alpha) {
+        if (!fade.isAlwaysOn()) {
+            float maxPossibleAlpha = this.fade.getAlpha(environment.getDayTime()) * maxAlpha;
+            this.rejectedCondition = this.compiledConditions.test(environment);
+            if (this.rejectedCondition == null) { // check if environment is invalid
                 if (alpha >= maxPossibleAlpha) {
                     alpha = maxPossibleAlpha;
                 } else {
@@ -175,18 +181,6 @@ public abstract class AbstractSkybox {
             alpha = 1f;
         }
 
-        if (alpha > SkyboxManager.MINIMUM_ALPHA) {
-            if (changeFog) {
-                SkyboxManager.shouldChangeFog = true;
-                SkyboxManager.fogRed = this.fogColors.getRed();
-                SkyboxManager.fogBlue = this.fogColors.getBlue();
-                SkyboxManager.fogGreen = this.fogColors.getGreen();
-            }
-            if (!renderSunSkyColorTint) {
-                SkyboxManager.renderSunriseAndSet = false;
-            }
-        }
-
         // sanity checks
         if (alpha < 0f) alpha = 0f;
         if (alpha > 1f) alpha = 1f;
@@ -194,170 +188,60 @@ public abstract class AbstractSkybox {
         return alpha;
     }
 
-    /**
-     * @return Whether the current biomes and dimensions are valid for this skybox.
-     */
-    protected boolean checkBiomes() {
-        Minecraft client = Minecraft.getInstance();
-        Objects.requireNonNull(client.level);
-        Objects.requireNonNull(client.player);
-        if (worlds.isEmpty()|| worlds.contains(client.level.dimension().location())) {
-            return biomes.isEmpty()|| biomes.contains(client.level.registryAccess().registryOrThrow(Registry.BIOME_REGISTRY).getKey(client.level.getBiome(client.player.blockPosition()).value()));
-        }
-        return false;
-    }
-
-    /*
-		Check if an effect that should prevent skybox from showing
-     */
-    protected boolean checkEffect() {
-        Minecraft client = Minecraft.getInstance();
-        Objects.requireNonNull(client.level);
-
-        Camera camera = client.gameRenderer.getMainCamera();
-        boolean thickFog = DimensionSpecialEffects.forType(client.level.dimensionType()).isFoggyAt(Mth.floor(camera.getPosition().x()), Mth.floor(camera.getPosition().y())) || client.gui.getBossOverlay().shouldCreateWorldFog();
-        if (thickFog)
-            return false;
-
-        FogType cameraSubmersionType = camera.getFluidInCamera();
-        if (cameraSubmersionType == FogType.POWDER_SNOW.POWDER_SNOW || cameraSubmersionType == FogType.LAVA)
-            return false;
-
-        if (camera.getEntity() instanceof LivingEntity livingEntity && livingEntity.hasEffect(MobEffects.BLINDNESS))
-            return false;
-
-        return true;
-    }
-
-    /**
-     * @return Whether the current x values are valid for this skybox.
-     */
-    protected boolean checkXRanges() {
-        double playerX = Objects.requireNonNull(Minecraft.getInstance().player).getX();
-        return checkCoordRanges(playerX, this.xRanges);
-    }
-
-    /**
-     * @return Whether the current y values are valid for this skybox.
-     */
-    protected boolean checkYRanges() {
-        double playerY = Objects.requireNonNull(Minecraft.getInstance().player).getY();
-        return checkCoordRanges(playerY, this.yRanges);
-    }
-
-    /**
-     * @return Whether the current z values are valid for this skybox.
-     */
-    protected boolean checkZRanges() {
-        double playerZ = Objects.requireNonNull(Minecraft.getInstance().player).getZ();
-        return checkCoordRanges(playerZ, this.zRanges);
-    }
-
-    /**
-     * @return Whether the coordValue is within any of the minMaxEntries.
-     */
-    private static boolean checkCoordRanges(double coordValue, List<MinMaxEntry> minMaxEntries) {
-        return minMaxEntries.isEmpty() || minMaxEntries.stream()
-            .anyMatch(minMaxEntry -> Range.closedOpen(minMaxEntry.getMin(), minMaxEntry.getMax())
-                .contains((float) coordValue));
-    }
-
-    /**
-     * @return Whether the current weather is valid for this skybox.
-     */
-    protected boolean checkWeather() {
-        ClientLevel world = Objects.requireNonNull(Minecraft.getInstance().level);
-        LocalPlayer player = Objects.requireNonNull(Minecraft.getInstance().player);
-        Biome.Precipitation precipitation = world.getBiome(player.blockPosition()).value().getPrecipitation();
-        if (weather.size() > 0) {
-            if (weather.contains("thunder") && world.isThundering()) {
-                return true;
-            } else if (weather.contains("snow") && world.isRaining() && precipitation == Biome.Precipitation.SNOW) {
-                return true;
-            } else if (weather.contains("rain") && world.isRaining() && !world.isThundering()) {
-                return true;
-            } else return weather.contains("clear") && !world.isRaining();
-        } else {
-            return true;
-        }
-    }
-
     public abstract SkyboxType<? extends AbstractSkybox> getType();
 
     public void renderDecorations(WorldRendererAccess worldRendererAccess, PoseStack matrices, Matrix4f matrix4f, float tickDelta, BufferBuilder bufferBuilder, float alpha) {
         if (!SkyboxManager.getInstance().hasRenderedDecorations()) {
-            Vector3f rotationStatic = decorations.getRotation().getStatic();
-            Vector3f rotationAxis = decorations.getRotation().getAxis();
+            Rotation rotation = decorations.getRotation();
 
-            RenderSystem.enableTexture();
+            SkyboxRenderState.texture(true);
             matrices.pushPose();
-            matrices.mulPose(Vector3f.XP.rotationDegrees(rotationStatic.x()));
-            matrices.mulPose(Vector3f.YP.rotationDegrees(rotationStatic.y()));
-            matrices.mulPose(Vector3f.ZP.rotationDegrees(rotationStatic.z()));
+            rotation.applyStatic(matrices);
             ClientLevel world = Minecraft.getInstance().level;
             assert world != null;
-            RenderSystem.enableTexture();
-            RenderSystem.blendFuncSeparate(GlStateManager.SourceFactor.SRC_ALPHA, GlStateManager.DestFactor.ONE, GlStateManager.SourceFactor.ONE, GlStateManager.DestFactor.ZERO);
-            matrices.mulPose(Vector3f.XP.rotationDegrees(rotationAxis.x()));
-            matrices.mulPose(Vector3f.YP.rotationDegrees(rotationAxis.y()));
-            matrices.mulPose(Vector3f.ZP.rotationDegrees(rotationAxis.z()));
-            matrices.mulPose(Vector3f.YP.rotationDegrees(-90.0F));
-            matrices.mulPose(Vector3f.XP.rotationDegrees(world.getTimeOfDay(tickDelta) * 360.0F * decorations.getRotation().getRotationSpeed()));
-            matrices.mulPose(Vector3f.ZN.rotationDegrees(rotationAxis.z()));
-            matrices.mulPose(Vector3f.YN.rotationDegrees(rotationAxis.y()));
-            matrices.mulPose(Vector3f.XN.rotationDegrees(rotationAxis.x()));
+            SkyboxRenderState.blend(true);
+            SkyboxRenderState.blendFuncSeparate(GlStateManager.SourceFactor.SRC_ALPHA.value, GlStateManager.DestFactor.ONE.value, GlStateManager.SourceFactor.ONE.value, GlStateManager.DestFactor.ZERO.value);
+            SkyboxRenderState.blendEquation(GL14.GL_FUNC_ADD);
+            Quaternion celestialRotation = this.celestialRotation;
+            celestialRotation.set(CELESTIAL_TILT.i(), CELESTIAL_TILT.j(), CELESTIAL_TILT.k(), CELESTIAL_TILT.r());
+            celestialRotation.mul(Rotation.setRotation(this.timeRotation, Vector3f.XP, world.getTimeOfDay(tickDelta) * 360.0F * rotation.getRotationSpeed()));
+            rotation.applyAxisRotation(matrices, celestialRotation);
             // sun
-            RenderSystem.setShaderColor(1.0F, 1.0F, 1.0F, alpha);
-            Matrix4f matrix4f2 = matrices.last().pose();
-            float s = 30.0F;
-            RenderSystem.setShader(GameRenderer::getPositionTexShader);
+            SkyboxRenderState.shaderColor(1.0F, 1.0F, 1.0F, alpha);
+            SkyboxRenderState.shader(GameRenderer::getPositionTexShader);
             if (decorations.isSunEnabled()) {
                 RenderSystem.setShaderTexture(0, this.decorations.getSunTexture());
-                bufferBuilder.begin(VertexFormat.Mode.QUADS, DefaultVertexFormat.POSITION_TEX);
-                bufferBuilder.vertex(matrix4f2, -s, 100.0F, -s).uv(0.0F, 0.0F).endVertex();
-                bufferBuilder.vertex(matrix4f2, s, 100.0F, -s).uv(1.0F, 0.0F).endVertex();
-                bufferBuilder.vertex(matrix4f2, s, 100.0F, s).uv(1.0F, 1.0F).endVertex();
-                bufferBuilder.vertex(matrix4f2, -s, 100.0F, s).uv(0.0F, 1.0F).endVertex();
-                bufferBuilder.end();
-                BufferUploader.end(bufferBuilder);
+                SkyboxMeshes.draw(SkyboxMeshes.sun(), matrices);
             }
             // moon
-            s = 20.0F;
             if (decorations.isMoonEnabled()) {
                 RenderSystem.setShaderTexture(0, this.decorations.getMoonTexture());
-                int u = world.getMoonPhase();
-                int v = u % 4;
-                int w = u / 4 % 2;
-                float x = v / 4.0F;
-                float p = w / 2.0F;
-                float q = (v + 1) / 4.0F;
-                float r = (w + 1) / 2.0F;
-                bufferBuilder.begin(VertexFormat.Mode.QUADS, DefaultVertexFormat.POSITION_TEX);
-                bufferBuilder.vertex(matrix4f2, -s, -100.0F, s).uv(q, r).endVertex();
-                bufferBuilder.vertex(matrix4f2, s, -100.0F, s).uv(x, r).endVertex();
-                bufferBuilder.vertex(matrix4f2, s, -100.0F, -s).uv(x, p).endVertex();
-                bufferBuilder.vertex(matrix4f2, -s, -100.0F, -s).uv(q, p).endVertex();
-                bufferBuilder.end();
-                BufferUploader.end(bufferBuilder);
+                SkyboxMeshes.draw(SkyboxMeshes.moon(world.getMoonPhase()), matrices);
             }
             // stars
             if (decorations.isStarsEnabled()) {
-                RenderSystem.disableTexture();
-                float ab = world.getStarBrightness(tickDelta) * s;
+                SkyboxRenderState.texture(false);
+                // the brightness used to be scaled by the moon size, kept so stars look the same
+                float ab = world.getStarBrightness(tickDelta) * 20.0F;
                 if (ab > 0.0F) {
-                    RenderSystem.setShaderColor(ab, ab, ab, ab);
+                    SkyboxRenderState.shaderColor(ab, ab, ab, ab);
                     worldRendererAccess.getStarsBuffer().drawWithShader(matrices.last().pose(), matrix4f, GameRenderer.getPositionShader());
                 }
             }
-            matrices.mulPose(Vector3f.ZP.rotationDegrees(rotationStatic.z()));
-            matrices.mulPose(Vector3f.YP.rotationDegrees(rotationStatic.y()));
-            matrices.mulPose(Vector3f.XP.rotationDegrees(rotationStatic.x()));
-            RenderSystem.setShaderColor(1.0F, 1.0F, 1.0F, 1.0F);
-            RenderSystem.disableBlend();
+            SkyboxRenderState.shaderColor(1.0F, 1.0F, 1.0F, 1.0F);
+            SkyboxRenderState.blend(false);
             matrices.popPose();
         }
     }
 
+    /**
+     * @return The condition that rejected this skybox during the last update, or {@code null} if none did.
+     */
+    @Nullable
+    public CompiledConditions.Type getRejectedCondition() {
+        return this.rejectedCondition;
+    }
+
     public Fade getFade() {
         return this.fade;
     }
@@ -106,6 +106,7 @@ public class LegacyDeserializer<T extends AbstractSkybox> extends ForgeRegistryE
                 skybox.yRanges.add(new MinMaxEntry(low, high));
             }
         }
+        skybox.compileConditions();
     }
 
     private static void processIds(JsonElement element, List<ResourceLocation> list) {
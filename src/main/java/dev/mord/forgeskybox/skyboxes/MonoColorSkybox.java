@@ -1,12 +1,13 @@
 package dev.mord.forgeskybox.skyboxes;
 
-import com.mojang.blaze3d.systems.RenderSystem;
 import com.mojang.blaze3d.vertex.*;
 import com.mojang.math.Matrix4f;
 import com.mojang.math.Vector3f;
 import com.mojang.serialization.Codec;
 import com.mojang.serialization.codecs.RecordCodecBuilder;
 import dev.mord.forgeskybox.mixin.skybox.WorldRendererAccess;
+import dev.mord.forgeskybox.render.SkyboxMeshes;
+import dev.mord.forgeskybox.render.SkyboxRenderState;
 import dev.mord.forgeskybox.util.object.RGBA;
 import dev.mord.forgeskybox.util.object.Conditions;
 import dev.mord.forgeskybox.util.object.Decorations;
@@ -18,6 +19,7 @@ import net.minecraft.client.renderer.DimensionSpecialEffects;
 import net.minecraft.client.renderer.FogRenderer;
 import net.minecraft.client.renderer.GameRenderer;
 import net.minecraft.util.Mth;
+import org.lwjgl.opengl.GL14;
 
 import java.util.Objects;
 
@@ -46,55 +48,42 @@ public class MonoColorSkybox extends AbstractSkybox {
     @Override
     public void render(WorldRendererAccess worldRendererAccess, PoseStack matrices, Matrix4f matrix4f, float tickDelta, Camera camera, boolean thickFog) {
         if (this.alpha > 0) {
-            RenderSystem.setShader(GameRenderer::getPositionTexColorShader);
+            SkyboxRenderState.shader(GameRenderer::getPositionTexColorShader);
             Minecraft client = Minecraft.getInstance();
             ClientLevel world = Objects.requireNonNull(client.level);
-            RenderSystem.disableTexture();
+            SkyboxRenderState.texture(false);
             FogRenderer.levelFogColor();
             BufferBuilder bufferBuilder = Tesselator.getInstance().getBuilder();
-            RenderSystem.depthMask(false);
-            RenderSystem.setShaderColor(this.color.getRed(), this.color.getGreen(), this.color.getBlue(), 1.0F);
+            SkyboxRenderState.depthMask(false);
+            // a previous layer may have left blending on
+            SkyboxRenderState.blend(false);
+            SkyboxRenderState.shaderColor(this.color.getRed(), this.color.getGreen(), this.color.getBlue(), 1.0F);
             worldRendererAccess.getLightSkyBuffer().bind();
             worldRendererAccess.getLightSkyBuffer().draw();
             VertexBuffer.unbind();
-            RenderSystem.enableBlend();
-            RenderSystem.defaultBlendFunc();
+            SkyboxRenderState.blend(true);
+            SkyboxRenderState.defaultBlendFunc();
+            SkyboxRenderState.blendEquation(GL14.GL_FUNC_ADD);
             float[] skyColor = DimensionSpecialEffects.forType(world.dimensionType()).getSunriseColor(world.getTimeOfDay(tickDelta), tickDelta);
-            float skySide;
-            float skyColorGreen;
-            float o;
-            float p;
-            float q;
-            if (skyColor != null) {
-                RenderSystem.disableTexture();
+            if (skyColor != null && skyColor[3] > 0.0F) {
+                SkyboxRenderState.texture(false);
+                SkyboxRenderState.shader(GameRenderer::getPositionColorShader);
                 matrices.pushPose();
                 matrices.mulPose(Vector3f.XP.rotationDegrees(90.0F));
-                skySide = Mth.sin(world.getSunAngle(tickDelta)) < 0.0F ? 180.0F : 0.0F;
+                float skySide = Mth.sin(world.getSunAngle(tickDelta)) < 0.0F ? 180.0F : 0.0F;
                 matrices.mulPose(Vector3f.ZP.rotationDegrees(skySide));
                 matrices.mulPose(Vector3f.ZP.rotationDegrees(90.0F));
-                float skyColorRed = skyColor[0];
-                skyColorGreen = skyColor[1];
-                float skyColorBlue = skyColor[2];
-                Matrix4f matrix4f2 = matrices.last().pose();
-                bufferBuilder.begin(VertexFormat.Mode.TRIANGLE_FAN, DefaultVertexFormat.POSITION_COLOR);
-                bufferBuilder.vertex(matrix4f2, 0.0F, 100.0F, 0.0F).color(skyColorRed, skyColorGreen, skyColorBlue, skyColor[3]).endVertex();
-
-                for (int n = 0; n <= 16; ++n) {
-                    o = (float) n * 6.2831855F / 16.0F;
-                    p = Mth.sin(o);
-                    q = Mth.cos(o);
-                    bufferBuilder.vertex(matrix4f2, p * 120.0F, q * 120.0F, -q * 40.0F * skyColor[3]).color(skyColor[0], skyColor[1], skyColor[2], 0.0F).endVertex();
-                }
-
-                bufferBuilder.end();
-                BufferUploader.end(bufferBuilder);
+                // the fan is baked at full height and in white, the center keeps the alpha of the sunrise and the edge fades out
+                matrices.scale(1.0F, 1.0F, skyColor[3]);
+                SkyboxRenderState.shaderColor(skyColor[0], skyColor[1], skyColor[2], skyColor[3]);
+                SkyboxMeshes.draw(SkyboxMeshes.sunriseFan(), matrices);
                 matrices.popPose();
             }
 
             this.renderDecorations(worldRendererAccess, matrices, matrix4f, tickDelta, bufferBuilder, this.alpha);
 
-            RenderSystem.disableTexture();
-            RenderSystem.setShaderColor(0.0F, 0.0F, 0.0F, 1.0F);
+            SkyboxRenderState.texture(false);
+            SkyboxRenderState.shaderColor(0.0F, 0.0F, 0.0F, 1.0F);
             //noinspection ConstantConditions
             double d = client.player.getEyePosition(tickDelta).y - world.getLevelData().getHorizonHeight(world);
             if (d < 0.0D) {
@@ -104,13 +93,10 @@ public class MonoColorSkybox extends AbstractSkybox {
             }
 
             if (world.effects().hasGround()) {
-                RenderSystem.setShaderColor(this.color.getRed() * 0.2F + 0.04F, this.color.getBlue() * 0.2F + 0.04F, this.color.getGreen() * 0.6F + 0.1F, 1.0F);
+                SkyboxRenderState.shaderColor(this.color.getRed() * 0.2F + 0.04F, this.color.getBlue() * 0.2F + 0.04F, this.color.getGreen() * 0.6F + 0.1F, 1.0F);
             } else {
-                RenderSystem.setShaderColor(this.color.getRed(), this.color.getBlue(), this.color.getGreen(), 1.0F);
+                SkyboxRenderState.shaderColor(this.color.getRed(), this.color.getBlue(), this.color.getGreen(), 1.0F);
             }
-
-            RenderSystem.enableTexture();
-            RenderSystem.depthMask(true);
         }
     }
 
@@ -11,8 +11,10 @@ import com.mojang.serialization.Codec;
 import com.mojang.serialization.Lifecycle;
 import dev.mord.forgeskybox.FabricSkyBoxesClient;
 import dev.mord.forgeskybox.skyboxes.textured.AnimatedSquareTexturedSkybox;
+import dev.mord.forgeskybox.skyboxes.textured.CubemapTexturedSkybox;
 import dev.mord.forgeskybox.skyboxes.textured.SingleSpriteAnimatedSquareTexturedSkybox;
 import dev.mord.forgeskybox.skyboxes.textured.SingleSpriteSquareTexturedSkybox;
+import dev.mord.forgeskybox.skyboxes.textured.SpriteSheetAnimatedSquareTexturedSkybox;
 import dev.mord.forgeskybox.skyboxes.textured.SquareTexturedSkybox;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraftforge.api.distmarker.Dist;
@@ -32,6 +34,8 @@ public class SkyboxType<T extends AbstractSkybox> extends ForgeRegistryEntry<Sky
     public static SkyboxType<SingleSpriteSquareTexturedSkybox> SINGLE_SPRITE_SQUARE_TEXTURED_SKYBOX;
     public static SkyboxType<AnimatedSquareTexturedSkybox> ANIMATED_SQUARE_TEXTURED_SKYBOX;
     public static SkyboxType<SingleSpriteAnimatedSquareTexturedSkybox> SINGLE_SPRITE_ANIMATED_SQUARE_TEXTURED_SKYBOX;
+    public static SkyboxType<CubemapTexturedSkybox> CUBEMAP_TEXTURED_SKYBOX;
+    public static SkyboxType<SpriteSheetAnimatedSquareTexturedSkybox> SPRITE_SHEET_ANIMATED_SQUARE_TEXTURED_SKYBOX;
     public static final Codec<ResourceLocation> SKYBOX_ID_CODEC;
 
 
@@ -120,6 +124,8 @@ public class SkyboxType<T extends AbstractSkybox> extends ForgeRegistryEntry<Sky
         SINGLE_SPRITE_SQUARE_TEXTURED_SKYBOX = register(SkyboxType.Builder.create(SingleSpriteSquareTexturedSkybox.class, "single-sprite-square-textured").add(2, SingleSpriteSquareTexturedSkybox.CODEC).build());
         ANIMATED_SQUARE_TEXTURED_SKYBOX = register(SkyboxType.Builder.create(AnimatedSquareTexturedSkybox.class, "animated-square-textured").add(2, AnimatedSquareTexturedSkybox.CODEC).build());
         SINGLE_SPRITE_ANIMATED_SQUARE_TEXTURED_SKYBOX = register(SkyboxType.Builder.create(SingleSpriteAnimatedSquareTexturedSkybox.class, "single-sprite-animated-square-textured").add(2, SingleSpriteAnimatedSquareTexturedSkybox.CODEC).build());
+        CUBEMAP_TEXTURED_SKYBOX = register(SkyboxType.Builder.create(CubemapTexturedSkybox.class, "cubemap-textured").add(2, CubemapTexturedSkybox.CODEC).build());
+        SPRITE_SHEET_ANIMATED_SQUARE_TEXTURED_SKYBOX = register(SkyboxType.Builder.create(SpriteSheetAnimatedSquareTexturedSkybox.class, "sprite-sheet-animated-square-textured").add(2, SpriteSheetAnimatedSquareTexturedSkybox.CODEC).build());
     }
 
     public static class Builder<T extends AbstractSkybox> {
@@ -1,14 +1,24 @@
 package dev.mord.forgeskybox.skyboxes.textured;
 
+import com.mojang.blaze3d.systems.RenderSystem;
 import com.mojang.blaze3d.vertex.PoseStack;
 import com.mojang.serialization.Codec;
 import com.mojang.serialization.codecs.RecordCodecBuilder;
 import dev.mord.forgeskybox.util.object.*;
+import dev.mord.forgeskybox.SkyboxConfig;
+import dev.mord.forgeskybox.SkyboxManager;
 import dev.mord.forgeskybox.mixin.skybox.WorldRendererAccess;
+import dev.mord.forgeskybox.render.SkyboxMeshes;
+import dev.mord.forgeskybox.render.SkyboxShaders;
+import dev.mord.forgeskybox.render.StreamingFrameArray;
+import dev.mord.forgeskybox.render.TextureArray;
 import dev.mord.forgeskybox.skyboxes.AbstractSkybox;
 import dev.mord.forgeskybox.skyboxes.SkyboxType;
 import net.minecraft.client.Camera;
+import net.minecraft.client.renderer.ShaderInstance;
+import net.minecraft.resources.ResourceLocation;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class AnimatedSquareTexturedSkybox extends SquareTexturedSkybox {
@@ -18,47 +28,151 @@ public class AnimatedSquareTexturedSkybox extends SquareTexturedSkybox {
             Decorations.CODEC.optionalFieldOf("decorations", Decorations.DEFAULT).forGetter(AbstractSkybox::getDecorations),
             Blend.CODEC.optionalFieldOf("blend", Blend.DEFAULT).forGetter(TexturedSkybox::getBlend),
             Textures.CODEC.listOf().fieldOf("animationTextures").forGetter(AnimatedSquareTexturedSkybox::getAnimationTextures),
-            Codec.FLOAT.fieldOf("fps").forGetter(AnimatedSquareTexturedSkybox::getFps)
+            Codec.FLOAT.fieldOf("fps").forGetter(AnimatedSquareTexturedSkybox::getFps),
+            Codec.BOOL.optionalFieldOf("interpolate", false).forGetter(AnimatedSquareTexturedSkybox::isInterpolate)
     ).apply(instance, AnimatedSquareTexturedSkybox::new));
     private final List<Textures> animationTextures;
     private final float fps;
-    private final long frameTimeMillis;
+    /**
+     * Whether adjacent frames are crossfaded, only done when animationTextureArrays or streamAnimations is enabled.
+     */
+    private final boolean interpolate;
+    private final double framesPerSecond;
     private int count = 0;
-    private long lastTime = 0L;
+    private transient TextureArray frameArray;
+    private transient StreamingFrameArray frameStream;
 
     @Override
     public SkyboxType<? extends AbstractSkybox> getType() {
         return SkyboxType.ANIMATED_SQUARE_TEXTURED_SKYBOX;
     }
 
-    public AnimatedSquareTexturedSkybox(DefaultProperties properties, Conditions conditions, Decorations decorations, Blend blend, List<Textures> animationTextures, float fps) {
+    public AnimatedSquareTexturedSkybox(DefaultProperties properties, Conditions conditions, Decorations decorations, Blend blend, List<Textures> animationTextures, float fps, boolean interpolate) {
         super(properties, conditions, decorations, blend, null);
         this.animationTextures = animationTextures;
         this.fps = fps;
+        this.interpolate = interpolate;
         if (fps > 0 && fps <= 360) {
-            this.frameTimeMillis = (long) (1000F / fps);
+            this.framesPerSecond = fps;
         } else {
-            this.frameTimeMillis = 16L;
+            // a frame every 16ms
+            this.framesPerSecond = 1000.0D / 16.0D;
         }
     }
 
     @Override
     public void renderSkybox(WorldRendererAccess worldRendererAccess, PoseStack matrices, float tickDelta, Camera camera, boolean thickFog) {
-        if (this.lastTime == 0L) this.lastTime = System.currentTimeMillis();
-        this.textures = this.getAnimationTextures().get(this.count);
-
-        super.renderSkybox(worldRendererAccess, matrices, tickDelta, camera, thickFog);
-
-        if (System.currentTimeMillis() >= (this.lastTime + this.frameTimeMillis)) {
-            if (this.count < this.getAnimationTextures().size()) {
-                if (this.count + 1 == this.getAnimationTextures().size()) {
-                    this.count = 0;
-                } else {
-                    this.count++;
-                }
-            }
-            this.lastTime = System.currentTimeMillis();
+        int frameCount = this.animationTextures.size();
+        if (frameCount == 0) {
+            return;
         }
+        // the frame follows game time, so animations skip frames at low frame rates and stop while paused
+        double frames = SkyboxManager.getInstance().getAnimationTime() * this.framesPerSecond;
+        double wholeFrames = Math.floor(frames);
+        this.count = (int) Math.floorMod((long) wholeFrames, (long) frameCount);
+        this.textures = this.animationTextures.get(this.count);
+
+        float progress = this.interpolate ? (float) (frames - wholeFrames) : 0.0F;
+        if (!SkyboxConfig.streamAnimations && this.frameStream != null) {
+            this.frameStream.release();
+            this.frameStream = null;
+        }
+        boolean drawn;
+        if (SkyboxConfig.streamAnimations) {
+            drawn = this.renderFrameStream(matrices, progress);
+        } else {
+            drawn = SkyboxConfig.animationTextureArrays && this.renderFrameArray(matrices, progress);
+        }
+        if (!drawn) {
+            super.renderSkybox(worldRendererAccess, matrices, tickDelta, camera, thickFog);
+        }
+    }
+
+    /**
+     * Draws the current frame from the texture array of the animation.
+     *
+     * @param progress How far the animation is towards the next frame, which is blended in by as much.
+     * @return {@code false} if the array can't be used or is still decoding, the frame is then drawn from its textures.
+     */
+    private boolean renderFrameArray(PoseStack matrices, float progress) {
+        ShaderInstance shader = SkyboxShaders.getArrayShader();
+        if (this.frameArray == null || this.frameArray.isReleased()) {
+            this.frameArray = TextureArray.getOrLoad(this.animationTextures);
+        }
+        this.frameArray.update();
+        if (shader == null || !this.frameArray.isLoaded()) {
+            return false;
+        }
+        this.frameArray.bindArray();
+        drawArray(shader, matrices, this.count, (this.count + 1) % this.animationTextures.size(), progress);
+        return true;
+    }
+
+    /**
+     * Draws the current frame from the frames streamed in around it. While the frame isn't resident yet
+     * the last drawn one stays on screen.
+     *
+     * @param progress How far the animation is towards the next frame, blended in if it is resident.
+     * @return {@code false} if streaming failed, the frame is then drawn from its textures.
+     */
+    private boolean renderFrameStream(PoseStack matrices, float progress) {
+        ShaderInstance shader = SkyboxShaders.getArrayShader();
+        if (shader == null) {
+            return false;
+        }
+        if (this.frameStream == null || this.frameStream.isReleased()) {
+            this.frameStream = StreamingFrameArray.create(this.animationTextures, SkyboxConfig.streamFramesAhead, SkyboxConfig.streamResidentFrames, SkyboxManager.getInstance().getRenderMetrics());
+        }
+        if (this.frameStream.isFailed()) {
+            return false;
+        }
+        int slot = this.frameStream.update(this.count);
+        if (this.frameStream.isFailed()) {
+            return false;
+        }
+        if (slot == -1) {
+            // nothing decoded yet
+            return true;
+        }
+        int nextSlot = progress > 0.0F ? this.frameStream.slotOf((this.count + 1) % this.animationTextures.size()) : -1;
+        this.frameStream.bind();
+        drawArray(shader, matrices, slot, nextSlot != -1 ? nextSlot : slot, nextSlot != -1 ? progress : 0.0F);
+        return true;
+    }
+
+    /**
+     * Draws the cube from the bound texture array, the faces of a frame being six consecutive layers.
+     */
+    private static void drawArray(ShaderInstance shader, PoseStack matrices, int frame, int nextFrame, float progress) {
+        shader.safeGetUniform("Frame").set((float) frame);
+        shader.safeGetUniform("NextFrame").set((float) nextFrame);
+        shader.safeGetUniform("FrameProgress").set(progress);
+        SkyboxMeshes.arrayCube().drawWithShader(matrices.last().pose(), RenderSystem.getProjectionMatrix(), shader);
+        TextureArray.unbindArray();
+    }
+
+    @Override
+    public boolean isStatic() {
+        return false;
+    }
+
+    @Override
+    protected List<Texture> getTextureRegions() {
+        // not scanned, decoding every frame on load would defeat streaming them
+        return List.of();
+    }
+
+    @Override
+    protected List<ResourceLocation> getBoundTextures() {
+        // texture arrays read the frames themselves
+        if (SkyboxConfig.streamAnimations || SkyboxConfig.animationTextureArrays) {
+            return List.of();
+        }
+        List<Texture> regions = new ArrayList<>();
+        for (Textures frame : this.animationTextures) {
+            regions.addAll(faces(frame));
+        }
+        return textureIds(regions);
     }
 
     public List<Textures> getAnimationTextures() {
@@ -68,4 +182,8 @@ public class AnimatedSquareTexturedSkybox extends SquareTexturedSkybox {
     public float getFps() {
         return this.fps;
     }
+
+    public boolean isInterpolate() {
+        return this.interpolate;
+    }
 }
@@ -0,0 +1,73 @@
+package dev.mord.forgeskybox.skyboxes.textured;
+
+import com.mojang.blaze3d.systems.RenderSystem;
+import com.mojang.blaze3d.vertex.PoseStack;
+import com.mojang.serialization.Codec;
+import com.mojang.serialization.codecs.RecordCodecBuilder;
+import dev.mord.forgeskybox.mixin.skybox.WorldRendererAccess;
+import dev.mord.forgeskybox.render.CubemapTexture;
+import dev.mord.forgeskybox.render.SkyboxMeshes;
+import dev.mord.forgeskybox.render.SkyboxRenderState;
+import dev.mord.forgeskybox.render.SkyboxShaders;
+import dev.mord.forgeskybox.skyboxes.AbstractSkybox;
+import dev.mord.forgeskybox.skyboxes.SkyboxType;
+import dev.mord.forgeskybox.util.object.*;
+import net.minecraft.client.Camera;
+import net.minecraft.client.renderer.ShaderInstance;
+
+import java.util.List;
+
+/**
+ * A square textured skybox drawn from a cube map in a single draw call, sampled by view direction.
+ * Accepts the same fields as {@link SquareTexturedSkybox}, the faces must be square and have the same size.
+ */
+public class CubemapTexturedSkybox extends TexturedSkybox {
+    public static Codec<CubemapTexturedSkybox> CODEC = RecordCodecBuilder.create(instance -> instance.group(
+            DefaultProperties.CODEC.fieldOf("properties").forGetter(AbstractSkybox::getDefaultProperties),
+            Conditions.CODEC.optionalFieldOf("conditions", Conditions.NO_CONDITIONS).forGetter(AbstractSkybox::getConditions),
+            Decorations.CODEC.optionalFieldOf("decorations", Decorations.DEFAULT).forGetter(AbstractSkybox::getDecorations),
+            Blend.CODEC.optionalFieldOf("blend", Blend.DEFAULT).forGetter(TexturedSkybox::getBlend),
+            Textures.CODEC.fieldOf("textures").forGetter(CubemapTexturedSkybox::getTextures)
+    ).apply(instance, CubemapTexturedSkybox::new));
+    private final Textures textures;
+    private transient CubemapTexture cubemap;
+
+    public CubemapTexturedSkybox(DefaultProperties properties, Conditions conditions, Decorations decorations, Blend blend, Textures textures) {
+        super(properties, conditions, decorations, blend);
+        this.textures = textures;
+    }
+
+    @Override
+    public SkyboxType<? extends AbstractSkybox> getType() {
+        return SkyboxType.CUBEMAP_TEXTURED_SKYBOX;
+    }
+
+    @Override
+    public void renderSkybox(WorldRendererAccess worldRendererAccess, PoseStack matrices, float tickDelta, Camera camera, boolean thickFog) {
+        ShaderInstance shader = SkyboxShaders.getCubemapShader();
+        if (this.cubemap == null || this.cubemap.isReleased()) {
+            this.cubemap = CubemapTexture.getOrLoad(this.textures);
+        }
+        this.cubemap.update();
+        if (shader == null || !this.cubemap.isLoaded()) {
+            // nothing is drawn while the faces are decoded
+            return;
+        }
+
+        // the cube is seen from the inside
+        SkyboxRenderState.cull(false);
+        this.cubemap.bindCubemap();
+        SkyboxMeshes.positionCube().drawWithShader(matrices.last().pose(), RenderSystem.getProjectionMatrix(), shader);
+        CubemapTexture.unbindCubemap();
+        SkyboxRenderState.cull(true);
+    }
+
+    @Override
+    protected List<Texture> getTextureRegions() {
+        return SquareTexturedSkybox.faces(this.textures);
+    }
+
+    public Textures getTextures() {
+        return this.textures;
+    }
+}
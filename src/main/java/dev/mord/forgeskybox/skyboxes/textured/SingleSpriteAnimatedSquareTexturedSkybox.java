@@ -16,10 +16,11 @@ public class SingleSpriteAnimatedSquareTexturedSkybox extends AnimatedSquareText
 			Decorations.CODEC.optionalFieldOf("decorations", Decorations.DEFAULT).forGetter(AbstractSkybox::getDecorations),
 			Blend.CODEC.optionalFieldOf("blend", Blend.DEFAULT).forGetter(TexturedSkybox::getBlend),
 			Texture.CODEC.listOf().fieldOf("animationTextures").forGetter(SingleSpriteAnimatedSquareTexturedSkybox::getAnimationTextureList),
-			Codec.FLOAT.fieldOf("fps").forGetter(SingleSpriteAnimatedSquareTexturedSkybox::getFps)
+			Codec.FLOAT.fieldOf("fps").forGetter(SingleSpriteAnimatedSquareTexturedSkybox::getFps),
+			Codec.BOOL.optionalFieldOf("interpolate", false).forGetter(SingleSpriteAnimatedSquareTexturedSkybox::isInterpolate)
 	).apply(instance, SingleSpriteAnimatedSquareTexturedSkybox::new));
 
-	public SingleSpriteAnimatedSquareTexturedSkybox(DefaultProperties properties, Conditions conditions, Decorations decorations, Blend blend, List<Texture> animationTextures, float fps) {
+	public SingleSpriteAnimatedSquareTexturedSkybox(DefaultProperties properties, Conditions conditions, Decorations decorations, Blend blend, List<Texture> animationTextures, float fps, boolean interpolate) {
 		super(
 				properties,
 				conditions,
@@ -33,7 +34,8 @@ public class SingleSpriteAnimatedSquareTexturedSkybox extends AnimatedSquareText
 						texture.withUV(1.0F / 3.0F, 0, 2.0F / 3.0F, 1.0F / 2.0F),
 						texture.withUV(0, 0, 1.0F / 3.0F, 1.0F / 2.0F)
 				)).collect(Collectors.toList()),
-				fps
+				fps,
+				interpolate
 		);
 	}
 
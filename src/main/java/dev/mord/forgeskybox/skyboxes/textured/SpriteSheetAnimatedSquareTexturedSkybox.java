@@ -0,0 +1,172 @@
+package dev.mord.forgeskybox.skyboxes.textured;
+
+import com.mojang.blaze3d.systems.RenderSystem;
+import com.mojang.blaze3d.vertex.PoseStack;
+import com.mojang.blaze3d.vertex.VertexBuffer;
+import com.mojang.serialization.Codec;
+import com.mojang.serialization.codecs.RecordCodecBuilder;
+import dev.mord.forgeskybox.util.object.*;
+import dev.mord.forgeskybox.SkyboxManager;
+import dev.mord.forgeskybox.mixin.skybox.WorldRendererAccess;
+import dev.mord.forgeskybox.render.SkyboxMeshes;
+import dev.mord.forgeskybox.render.SkyboxShaders;
+import dev.mord.forgeskybox.skyboxes.AbstractSkybox;
+import dev.mord.forgeskybox.skyboxes.SkyboxType;
+import net.minecraft.client.Camera;
+import net.minecraft.client.renderer.ShaderInstance;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An animation laid out on one sprite sheet, a grid of cells each holding the six faces of a frame in the
+ * layout of {@link SingleSpriteSquareTexturedSkybox}. Frames are read left to right, then top to bottom.
+ * The mesh is baked with the UVs of the first cell and the shader shifts them to the current one,
+ * so the whole animation is a single texture drawn with a single draw call.
+ */
+public class SpriteSheetAnimatedSquareTexturedSkybox extends SquareTexturedSkybox {
+    public static final Codec<SpriteSheetAnimatedSquareTexturedSkybox> CODEC = RecordCodecBuilder.create(instance -> instance.group(
+            DefaultProperties.CODEC.fieldOf("properties").forGetter(AbstractSkybox::getDefaultProperties),
+            Conditions.CODEC.optionalFieldOf("conditions", Conditions.NO_CONDITIONS).forGetter(AbstractSkybox::getConditions),
+            Decorations.CODEC.optionalFieldOf("decorations", Decorations.DEFAULT).forGetter(AbstractSkybox::getDecorations),
+            Blend.CODEC.optionalFieldOf("blend", Blend.DEFAULT).forGetter(TexturedSkybox::getBlend),
+            Texture.CODEC.fieldOf("texture").forGetter(SpriteSheetAnimatedSquareTexturedSkybox::getTexture),
+            Codec.INT.fieldOf("columns").forGetter(SpriteSheetAnimatedSquareTexturedSkybox::getColumns),
+            Codec.INT.fieldOf("rows").forGetter(SpriteSheetAnimatedSquareTexturedSkybox::getRows),
+            Codec.INT.optionalFieldOf("frameCount", 0).forGetter(SpriteSheetAnimatedSquareTexturedSkybox::getFrameCount),
+            Codec.FLOAT.fieldOf("fps").forGetter(SpriteSheetAnimatedSquareTexturedSkybox::getFps),
+            Codec.BOOL.optionalFieldOf("interpolate", false).forGetter(SpriteSheetAnimatedSquareTexturedSkybox::isInterpolate)
+    ).apply(instance, SpriteSheetAnimatedSquareTexturedSkybox::new));
+    private final Texture texture;
+    private final int columns;
+    private final int rows;
+    /**
+     * The cells holding frames, every cell of the grid if not set.
+     */
+    private final int frameCount;
+    private final float fps;
+    private final boolean interpolate;
+    private final double framesPerSecond;
+    /**
+     * The faces of every frame, drawn one texture region at a time if the shader failed to load.
+     */
+    private final List<Textures> frames;
+    private final Textures firstFrame;
+
+    @Override
+    public SkyboxType<? extends AbstractSkybox> getType() {
+        return SkyboxType.SPRITE_SHEET_ANIMATED_SQUARE_TEXTURED_SKYBOX;
+    }
+
+    public SpriteSheetAnimatedSquareTexturedSkybox(DefaultProperties properties, Conditions conditions, Decorations decorations, Blend blend, Texture texture, int columns, int rows, int frameCount, float fps, boolean interpolate) {
+        super(properties, conditions, decorations, blend, null);
+        this.texture = texture;
+        this.columns = Math.max(columns, 1);
+        this.rows = Math.max(rows, 1);
+        int cells = this.columns * this.rows;
+        this.frameCount = frameCount > 0 && frameCount <= cells ? frameCount : cells;
+        this.fps = fps;
+        this.interpolate = interpolate;
+        if (fps > 0 && fps <= 360) {
+            this.framesPerSecond = fps;
+        } else {
+            // a frame every 16ms
+            this.framesPerSecond = 1000.0D / 16.0D;
+        }
+        this.frames = new ArrayList<>(this.frameCount);
+        for (int frame = 0; frame < this.frameCount; frame++) {
+            this.frames.add(this.cell(frame));
+        }
+        this.firstFrame = this.frames.get(0);
+        this.textures = this.firstFrame;
+    }
+
+    /**
+     * @return The faces of the frame, in the layout of {@link SingleSpriteSquareTexturedSkybox} within its cell.
+     */
+    private Textures cell(int frame) {
+        float width = 1.0F / this.columns;
+        float height = 1.0F / this.rows;
+        float u = (frame % this.columns) * width;
+        float v = (frame / this.columns) * height;
+        return new Textures(
+                this.region(u, v, width, height, 1.0F / 3.0F, 1.0F / 2.0F, 2.0F / 3.0F, 1),
+                this.region(u, v, width, height, 2.0F / 3.0F, 0, 1, 1.0F / 2.0F),
+                this.region(u, v, width, height, 2.0F / 3.0F, 1.0F / 2.0F, 1, 1),
+                this.region(u, v, width, height, 0, 1.0F / 2.0F, 1.0F / 3.0F, 1),
+                this.region(u, v, width, height, 1.0F / 3.0F, 0, 2.0F / 3.0F, 1.0F / 2.0F),
+                this.region(u, v, width, height, 0, 0, 1.0F / 3.0F, 1.0F / 2.0F)
+        );
+    }
+
+    private Texture region(float u, float v, float width, float height, float minU, float minV, float maxU, float maxV) {
+        return this.texture.withUV(u + minU * width, v + minV * height, u + maxU * width, v + maxV * height);
+    }
+
+    @Override
+    public void renderSkybox(WorldRendererAccess worldRendererAccess, PoseStack matrices, float tickDelta, Camera camera, boolean thickFog) {
+        // the frame follows game time, like the other animated skyboxes
+        double time = SkyboxManager.getInstance().getAnimationTime() * this.framesPerSecond;
+        double wholeFrames = Math.floor(time);
+        int frame = (int) Math.floorMod((long) wholeFrames, (long) this.frameCount);
+
+        ShaderInstance shader = SkyboxShaders.getSpriteSheetShader();
+        if (shader == null) {
+            this.textures = this.frames.get(frame);
+            super.renderSkybox(worldRendererAccess, matrices, tickDelta, camera, thickFog);
+            return;
+        }
+        this.textures = this.firstFrame;
+        int nextFrame = (frame + 1) % this.frameCount;
+        shader.safeGetUniform("FrameOffset").set(this.offsetU(frame), this.offsetV(frame));
+        shader.safeGetUniform("NextFrameOffset").set(this.offsetU(nextFrame), this.offsetV(nextFrame));
+        shader.safeGetUniform("FrameProgress").set(this.interpolate ? (float) (time - wholeFrames) : 0.0F);
+        // every face lies on the sheet, so this is always the buffer of the whole cube
+        VertexBuffer cube = SkyboxMeshes.cube(this.firstFrame)[0];
+        RenderSystem.setShaderTexture(0, this.texture.getTextureId());
+        cube.drawWithShader(matrices.last().pose(), RenderSystem.getProjectionMatrix(), shader);
+    }
+
+    private float offsetU(int frame) {
+        return (float) (frame % this.columns) / this.columns;
+    }
+
+    private float offsetV(int frame) {
+        return (float) (frame / this.columns) / this.rows;
+    }
+
+    @Override
+    public boolean isStatic() {
+        return false;
+    }
+
+    @Override
+    protected List<Texture> getTextureRegions() {
+        // not scanned, like the other animated skyboxes
+        return List.of();
+    }
+
+    public Texture getTexture() {
+        return this.texture;
+    }
+
+    public int getColumns() {
+        return this.columns;
+    }
+
+    public int getRows() {
+        return this.rows;
+    }
+
+    public int getFrameCount() {
+        return this.frameCount;
+    }
+
+    public float getFps() {
+        return this.fps;
+    }
+
+    public boolean isInterpolate() {
+        return this.interpolate;
+    }
+}
@@ -1,16 +1,20 @@
 package dev.mord.forgeskybox.skyboxes.textured;
 
 import com.mojang.blaze3d.systems.RenderSystem;
-import com.mojang.blaze3d.vertex.*;
-import com.mojang.math.Matrix4f;
-import com.mojang.math.Vector3f;
+import com.mojang.blaze3d.vertex.PoseStack;
+import com.mojang.blaze3d.vertex.VertexBuffer;
 import com.mojang.serialization.Codec;
 import com.mojang.serialization.codecs.RecordCodecBuilder;
 import dev.mord.forgeskybox.util.object.*;
 import dev.mord.forgeskybox.mixin.skybox.WorldRendererAccess;
+import dev.mord.forgeskybox.render.SkyboxMeshes;
 import dev.mord.forgeskybox.skyboxes.AbstractSkybox;
 import dev.mord.forgeskybox.skyboxes.SkyboxType;
 import net.minecraft.client.Camera;
+import net.minecraft.resources.ResourceLocation;
+
+import java.util.ArrayList;
+import java.util.List;
 
 public class SquareTexturedSkybox extends TexturedSkybox {
     public static Codec<SquareTexturedSkybox> CODEC = RecordCodecBuilder.create(instance -> instance.group(
@@ -21,6 +25,15 @@ public class SquareTexturedSkybox extends TexturedSkybox {
             Textures.CODEC.fieldOf("textures").forGetter(s -> s.textures)
     ).apply(instance, SquareTexturedSkybox::new));
     public Textures textures;
+    /**
+     * The buffers of {@link #bakedTextures}, resolved again when the textures change or the buffers were released.
+     * Either one buffer for the whole cube, or one per face.
+     *
+     * @see SkyboxMeshes#cube(Textures)
+     */
+    private transient Textures bakedTextures;
+    private transient VertexBuffer[] faceBuffers;
+    private transient int bakedGeneration;
 
     public SquareTexturedSkybox() {
     }
@@ -35,10 +48,47 @@ public class SquareTexturedSkybox extends TexturedSkybox {
         return SkyboxType.SQUARE_TEXTURED_SKYBOX;
     }
 
+    @Override
+    public ResourceLocation getSortTexture() {
+        return this.textures != null ? this.textures.byId(0).getTextureId() : null;
+    }
+
+    @Override
+    protected List<Texture> getTextureRegions() {
+        return this.textures != null ? faces(this.textures) : List.of();
+    }
+
+    @Override
+    protected List<ResourceLocation> getBoundTextures() {
+        return this.textures != null ? textureIds(faces(this.textures)) : List.of();
+    }
+
+    static List<ResourceLocation> textureIds(List<Texture> regions) {
+        return regions.stream().map(Texture::getTextureId).distinct().toList();
+    }
+
+    static List<Texture> faces(Textures textures) {
+        List<Texture> faces = new ArrayList<>(6);
+        for (int i = 0; i < 6; i++) {
+            faces.add(textures.byId(i));
+        }
+        return faces;
+    }
+
     @Override
     public void renderSkybox(WorldRendererAccess worldRendererAccess, PoseStack matrices, float tickDelta, Camera camera, boolean thickFog) {
-        Tesselator tessellator = Tesselator.getInstance();
-        BufferBuilder bufferBuilder = tessellator.getBuilder();
+        if (this.faceBuffers == null || this.bakedTextures != this.textures || this.bakedGeneration != SkyboxMeshes.getGeneration()) {
+            this.faceBuffers = SkyboxMeshes.cube(this.textures);
+            this.bakedTextures = this.textures;
+            this.bakedGeneration = SkyboxMeshes.getGeneration();
+        }
+
+        if (this.faceBuffers.length == 1) {
+            // every face shares one texture, draw the cube at once
+            RenderSystem.setShaderTexture(0, this.textures.byId(0).getTextureId());
+            SkyboxMeshes.draw(this.faceBuffers[0], matrices);
+            return;
+        }
 
         for (int i = 0; i < 6; ++i) {
             // 0 = bottom
@@ -47,34 +97,8 @@ public class SquareTexturedSkybox extends TexturedSkybox {
             // 3 = top
             // 4 = east
             // 5 = west
-            Texture tex = this.textures.byId(i);
-            matrices.pushPose();
-
-            RenderSystem.setShaderTexture(0, tex.getTextureId());
-
-            if (i == 1) {
-                matrices.mulPose(Vector3f.XP.rotationDegrees(90.0F));
-            } else if (i == 2) {
-                matrices.mulPose(Vector3f.XP.rotationDegrees(-90.0F));
-                matrices.mulPose(Vector3f.YP.rotationDegrees(180.0F));
-            } else if (i == 3) {
-                matrices.mulPose(Vector3f.XP.rotationDegrees(180.0F));
-            } else if (i == 4) {
-                matrices.mulPose(Vector3f.ZP.rotationDegrees(90.0F));
-                matrices.mulPose(Vector3f.YP.rotationDegrees(-90.0F));
-            } else if (i == 5) {
-                matrices.mulPose(Vector3f.ZP.rotationDegrees(-90.0F));
-                matrices.mulPose(Vector3f.YP.rotationDegrees(90.0F));
-            }
-
-            Matrix4f matrix4f = matrices.last().pose();
-            bufferBuilder.begin(VertexFormat.Mode.QUADS, DefaultVertexFormat.POSITION_TEX_COLOR);
-            bufferBuilder.vertex(matrix4f, -100.0F, -100.0F, -100.0F).uv(tex.getMinU(), tex.getMinV()).color(1f, 1f, 1f, alpha).endVertex();
-            bufferBuilder.vertex(matrix4f, -100.0F, -100.0F, 100.0F).uv(tex.getMinU(), tex.getMaxV()).color(1f, 1f, 1f, alpha).endVertex();
-            bufferBuilder.vertex(matrix4f, 100.0F, -100.0F, 100.0F).uv(tex.getMaxU(), tex.getMaxV()).color(1f, 1f, 1f, alpha).endVertex();
-            bufferBuilder.vertex(matrix4f, 100.0F, -100.0F, -100.0F).uv(tex.getMaxU(), tex.getMinV()).color(1f, 1f, 1f, alpha).endVertex();
-            tessellator.end();
-            matrices.popPose();
+            RenderSystem.setShaderTexture(0, this.textures.byId(i).getTextureId());
+            SkyboxMeshes.draw(this.faceBuffers[i], matrices);
         }
     }
 }
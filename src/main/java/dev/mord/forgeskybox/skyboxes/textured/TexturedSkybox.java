@@ -1,25 +1,46 @@
 package dev.mord.forgeskybox.skyboxes.textured;
 
-import com.mojang.blaze3d.systems.RenderSystem;
 import com.mojang.blaze3d.vertex.BufferBuilder;
 import com.mojang.blaze3d.vertex.PoseStack;
 import com.mojang.blaze3d.vertex.Tesselator;
 import com.mojang.math.Matrix4f;
+import com.mojang.math.Quaternion;
 import com.mojang.math.Vector3f;
 import dev.mord.forgeskybox.util.object.*;
 import dev.mord.forgeskybox.mixin.skybox.WorldRendererAccess;
+import dev.mord.forgeskybox.render.SkyboxRenderState;
+import dev.mord.forgeskybox.render.TextureOpacity;
+import dev.mord.forgeskybox.render.TextureResidency;
 import dev.mord.forgeskybox.skyboxes.AbstractSkybox;
 import dev.mord.forgeskybox.skyboxes.RotatableSkybox;
 import net.minecraft.client.Camera;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.multiplayer.ClientLevel;
 import net.minecraft.client.renderer.GameRenderer;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.packs.resources.ResourceManager;
+import org.jetbrains.annotations.Nullable;
 
+import java.util.List;
 import java.util.Objects;
 
 public abstract class TexturedSkybox extends AbstractSkybox implements RotatableSkybox {
     public Rotation rotation;
     public Blend blend;
+    private final transient Quaternion timeRotation = Quaternion.ONE.copy();
+    /**
+     * Whether every texture of this skybox is fully opaque, set by {@link #scanOpacity(ResourceManager)}.
+     */
+    private transient boolean opaqueTextures;
+    /**
+     * The textures this skybox acquired, {@code null} while they aren't resident.
+     *
+     * @see TextureResidency
+     */
+    private transient List<ResourceLocation> residentTextures;
+    private transient int residencyGeneration;
+    private transient long residentBytes;
+    private transient int idleTicks;
 
     protected TexturedSkybox() {
     }
@@ -32,6 +53,7 @@ public abstract class TexturedSkybox extends AbstractSkybox implements Rotatable
 
     /**
      * Overrides and makes final here as there are options that should always be respected in a textured skybox.
+     * The state is left for the next layer, {@link SkyboxRenderState#end()} restores it after the skybox pass.
      *
      * @param worldRendererAccess Access to the worldRenderer as skyboxes often require it.
      * @param matrices            The current MatrixStack.
@@ -39,35 +61,145 @@ public abstract class TexturedSkybox extends AbstractSkybox implements Rotatable
      */
     @Override
     public final void render(WorldRendererAccess worldRendererAccess, PoseStack matrices, Matrix4f matrix4f, float tickDelta, Camera camera, boolean thickFog) {
-        RenderSystem.depthMask(false);
-        RenderSystem.enableBlend();
+        this.setupState();
+        this.renderLayer(worldRendererAccess, matrices, matrix4f, tickDelta, camera, thickFog);
+    }
 
-        RenderSystem.setShader(GameRenderer::getPositionTexShader);
-        blend.applyBlendFunc(this.alpha);
+    /**
+     * Sets up the render state of this skybox. Consecutive layers with the same blend state share it.
+     *
+     * @see Blend#hasSameState(Blend)
+     */
+    public final void setupState() {
+        SkyboxRenderState.depthMask(false);
+        SkyboxRenderState.texture(true);
+        SkyboxRenderState.blend(true);
 
-        ClientLevel world = Objects.requireNonNull(Minecraft.getInstance().level);
+        SkyboxRenderState.shader(GameRenderer::getPositionTexShader);
+        this.blend.applyState();
+    }
 
-        Vector3f rotationStatic = this.rotation.getStatic();
+    /**
+     * Renders this skybox once its state is set up by {@link #setupState()}.
+     * Leaves the state as it found it, unless it rendered the decorations.
+     */
+    public final void renderLayer(WorldRendererAccess worldRendererAccess, PoseStack matrices, Matrix4f matrix4f, float tickDelta, Camera camera, boolean thickFog) {
+        this.blend.applyColor(this.alpha);
+        // skyboxes appearing without notice, e.g. when textures aren't managed lazily, load their textures now
+        this.ensureResident();
+
+        ClientLevel world = Objects.requireNonNull(Minecraft.getInstance().level);
 
         matrices.pushPose();
         float timeRotation = this.shouldRotate ? ((float) world.getDayTime() / 24000) * 360 : 0;
         this.applyTimeRotation(matrices, timeRotation);
-        matrices.mulPose(Vector3f.XP.rotationDegrees(rotationStatic.x()));
-        matrices.mulPose(Vector3f.YP.rotationDegrees(rotationStatic.y()));
-        matrices.mulPose(Vector3f.ZP.rotationDegrees(rotationStatic.z()));
+        this.rotation.applyStatic(matrices);
         this.renderSkybox(worldRendererAccess, matrices, tickDelta, camera, thickFog);
-        matrices.mulPose(Vector3f.ZP.rotationDegrees(rotationStatic.z()));
-        matrices.mulPose(Vector3f.YP.rotationDegrees(rotationStatic.y()));
-        matrices.mulPose(Vector3f.XP.rotationDegrees(rotationStatic.x()));
         matrices.popPose();
 
         BufferBuilder bufferBuilder = Tesselator.getInstance().getBuilder();
 
         this.renderDecorations(worldRendererAccess, matrices, matrix4f, tickDelta, bufferBuilder, this.alpha);
+    }
+
+    /**
+     * Scans the textures of this skybox for transparency, so layers below it can be skipped while it covers the sky.
+     */
+    public final void scanOpacity(ResourceManager resourceManager) {
+        List<Texture> textures = this.getTextureRegions();
+        this.opaqueTextures = !textures.isEmpty() && TextureOpacity.areOpaque(resourceManager, textures);
+    }
 
-        RenderSystem.depthMask(true);
-        RenderSystem.enableTexture();
-        RenderSystem.disableBlend();
+    /**
+     * Makes the textures of this skybox resident if they aren't.
+     */
+    public final void ensureResident() {
+        if (this.isResident()) {
+            return;
+        }
+        List<ResourceLocation> textureIds = this.getBoundTextures();
+        this.residentBytes = TextureResidency.acquire(textureIds);
+        this.residentTextures = textureIds;
+        this.residencyGeneration = TextureResidency.getGeneration();
+        this.idleTicks = 0;
+    }
+
+    /**
+     * Advances the residency of the textures of this skybox by one tick. They are loaded while it may appear
+     * and freed once it stayed hidden for the given number of ticks.
+     *
+     * @param eligible Whether this skybox may appear soon.
+     */
+    public final void tickResidency(boolean eligible, int idleTicksBeforeRelease) {
+        if (eligible || this.alpha > 0.0F) {
+            this.ensureResident();
+            this.idleTicks = 0;
+        } else if (this.residentTextures != null && ++this.idleTicks >= idleTicksBeforeRelease) {
+            this.releaseTextures();
+        }
+    }
+
+    /**
+     * Drops the references of this skybox to its textures, they are acquired again when it is drawn.
+     */
+    public final void releaseTextures() {
+        if (this.isResident()) {
+            TextureResidency.release(this.residentTextures);
+        }
+        this.residentTextures = null;
+        this.residentBytes = 0;
+        this.idleTicks = 0;
+    }
+
+    /**
+     * @return The video memory used by the resident textures of this skybox, including textures shared with others.
+     */
+    public long getResidentTextureBytes() {
+        return this.isResident() ? this.residentBytes : 0;
+    }
+
+    /**
+     * @return Whether this skybox references its textures.
+     */
+    public boolean isResident() {
+        return this.residentTextures != null && this.residencyGeneration == TextureResidency.getGeneration();
+    }
+
+    /**
+     * @return The textures bound through the texture manager to draw this skybox, made resident by {@link #ensureResident()}.
+     */
+    protected List<ResourceLocation> getBoundTextures() {
+        return List.of();
+    }
+
+    /**
+     * @return Every texture region this skybox may draw. Skyboxes returning none are never considered opaque.
+     */
+    protected List<Texture> getTextureRegions() {
+        return List.of();
+    }
+
+    /**
+     * @return Whether this skybox looks the same every frame at a constant alpha.
+     */
+    public boolean isStatic() {
+        return !this.shouldRotate;
+    }
+
+    /**
+     * @param alpha The alpha this skybox is drawn with.
+     * @return Whether this skybox hides everything drawn before it.
+     */
+    public boolean coversSky(float alpha) {
+        return alpha >= 1.0F && this.opaqueTextures && this.blend.isOpaqueAtFullAlpha();
+    }
+
+    /**
+     * @return The texture layers are sorted by so the same texture is bound by consecutive layers, if any.
+     */
+    @Nullable
+    public ResourceLocation getSortTexture() {
+        return null;
     }
 
     /**
@@ -76,15 +208,8 @@ public abstract class TexturedSkybox extends AbstractSkybox implements Rotatable
     public abstract void renderSkybox(WorldRendererAccess worldRendererAccess, PoseStack matrices, float tickDelta, Camera camera, boolean thickFog);
 
     private void applyTimeRotation(PoseStack matrices, float timeRotation) {
-        // Very ugly, find a better way to do this
-        Vector3f timeRotationAxis = this.rotation.getAxis();
-        matrices.mulPose(Vector3f.XP.rotationDegrees(timeRotationAxis.x()));
-        matrices.mulPose(Vector3f.YP.rotationDegrees(timeRotationAxis.y()));
-        matrices.mulPose(Vector3f.ZP.rotationDegrees(timeRotationAxis.z()));
-        matrices.mulPose(Vector3f.YP.rotationDegrees(timeRotation * rotation.getRotationSpeed()));
-        matrices.mulPose(Vector3f.ZN.rotationDegrees(timeRotationAxis.z()));
-        matrices.mulPose(Vector3f.YN.rotationDegrees(timeRotationAxis.y()));
-        matrices.mulPose(Vector3f.XN.rotationDegrees(timeRotationAxis.x()));
+        Rotation.setRotation(this.timeRotation, Vector3f.YP, timeRotation * this.rotation.getRotationSpeed());
+        this.rotation.applyAxisRotation(matrices, this.timeRotation);
     }
 
     public Blend getBlend() {
@@ -0,0 +1,59 @@
+package dev.mord.forgeskybox.util;
+
+import net.minecraft.client.multiplayer.ClientLevel;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Holder;
+import net.minecraft.core.Registry;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.level.biome.Biome;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Resolves the biome at the player position, only looking it up again once the player
+ * moved to another block or level. Only used from the render thread.
+ */
+class BiomeCache {
+    @Nullable
+    private ClientLevel level;
+    private long position;
+    @Nullable
+    private ResourceLocation biome;
+    private int biomeId = BiomeIds.UNKNOWN;
+    private Biome.Precipitation precipitation = Biome.Precipitation.NONE;
+
+    void update(ClientLevel level, BlockPos position) {
+        long packedPosition = position.asLong();
+        if (level == this.level && packedPosition == this.position) {
+            return;
+        }
+        Holder<Biome> holder = level.getBiome(position);
+        this.level = level;
+        this.position = packedPosition;
+        this.biome = level.registryAccess().registryOrThrow(Registry.BIOME_REGISTRY).getKey(holder.value());
+        this.biomeId = BiomeIds.intern(this.biome);
+        this.precipitation = holder.value().getPrecipitation();
+    }
+
+    /**
+     * Drops the cached biome and the reference to the level.
+     */
+    void clear() {
+        this.level = null;
+        this.biome = null;
+        this.biomeId = BiomeIds.UNKNOWN;
+        this.precipitation = Biome.Precipitation.NONE;
+    }
+
+    @Nullable
+    ResourceLocation getBiome() {
+        return this.biome;
+    }
+
+    int getBiomeId() {
+        return this.biomeId;
+    }
+
+    Biome.Precipitation getPrecipitation() {
+        return this.precipitation;
+    }
+}
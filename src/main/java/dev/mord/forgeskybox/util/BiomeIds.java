@@ -0,0 +1,40 @@
+package dev.mord.forgeskybox.util;
+
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.minecraft.resources.ResourceLocation;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Interns biome ids into small dense integers, so biome conditions can be tested with a bitset
+ * instead of comparing resource locations.
+ */
+public final class BiomeIds {
+    /**
+     * The id of a missing biome, never contained in any biome condition.
+     */
+    public static final int UNKNOWN = -1;
+    private static final Object2IntMap<ResourceLocation> IDS = new Object2IntOpenHashMap<>();
+
+    static {
+        IDS.defaultReturnValue(UNKNOWN);
+    }
+
+    private BiomeIds() {
+    }
+
+    /**
+     * @return The interned id of the biome, or {@link #UNKNOWN} if it is {@code null}.
+     */
+    public static synchronized int intern(@Nullable ResourceLocation biome) {
+        if (biome == null) {
+            return UNKNOWN;
+        }
+        int id = IDS.getInt(biome);
+        if (id == UNKNOWN) {
+            id = IDS.size();
+            IDS.put(biome, id);
+        }
+        return id;
+    }
+}
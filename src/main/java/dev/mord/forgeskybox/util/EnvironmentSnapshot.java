@@ -0,0 +1,226 @@
+package dev.mord.forgeskybox.util;
+
+import net.minecraft.client.Camera;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.multiplayer.ClientLevel;
+import net.minecraft.client.player.LocalPlayer;
+import net.minecraft.client.renderer.DimensionSpecialEffects;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.util.Mth;
+import net.minecraft.world.effect.MobEffects;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.level.biome.Biome;
+import net.minecraft.world.level.material.FogType;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * An immutable view of everything skybox conditions look at, captured once per frame
+ * and shared by all skyboxes. Use the {@link Builder} to create synthetic environments.
+ */
+public class EnvironmentSnapshot {
+    private static final BiomeCache BIOME_CACHE = new BiomeCache();
+    private final long dayTime;
+    private final double x;
+    private final double y;
+    private final double z;
+    private final ResourceLocation world;
+    private final int worldId;
+    @Nullable
+    private final ResourceLocation biome;
+    private final int biomeId;
+    private final Biome.Precipitation precipitation;
+    private final boolean raining;
+    private final boolean thundering;
+    private final FogType fluid;
+    private final boolean blindness;
+    private final boolean thickFog;
+
+    public EnvironmentSnapshot(long dayTime, double x, double y, double z, ResourceLocation world, @Nullable ResourceLocation biome, Biome.Precipitation precipitation, boolean raining, boolean thundering, FogType fluid, boolean blindness, boolean thickFog) {
+        this(dayTime, x, y, z, world, WorldIds.intern(world), biome, BiomeIds.intern(biome), precipitation, raining, thundering, fluid, blindness, thickFog);
+    }
+
+    private EnvironmentSnapshot(long dayTime, double x, double y, double z, ResourceLocation world, int worldId, @Nullable ResourceLocation biome, int biomeId, Biome.Precipitation precipitation, boolean raining, boolean thundering, FogType fluid, boolean blindness, boolean thickFog) {
+        this.dayTime = dayTime;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.world = world;
+        this.worldId = worldId;
+        this.biome = biome;
+        this.biomeId = biomeId;
+        this.precipitation = precipitation;
+        this.raining = raining;
+        this.thundering = thundering;
+        this.fluid = fluid;
+        this.blindness = blindness;
+        this.thickFog = thickFog;
+    }
+
+    /**
+     * Captures the current environment of the client.
+     *
+     * @return The snapshot, or {@code null} if there is no level or player.
+     */
+    @Nullable
+    public static EnvironmentSnapshot capture(Minecraft client) {
+        ClientLevel level = client.level;
+        LocalPlayer player = client.player;
+        if (level == null || player == null) {
+            BIOME_CACHE.clear();
+            return null;
+        }
+        Camera camera = client.gameRenderer.getMainCamera();
+        BIOME_CACHE.update(level, player.blockPosition());
+        boolean thickFog = DimensionSpecialEffects.forType(level.dimensionType()).isFoggyAt(Mth.floor(camera.getPosition().x()), Mth.floor(camera.getPosition().y())) || client.gui.getBossOverlay().shouldCreateWorldFog();
+        boolean blindness = camera.getEntity() instanceof LivingEntity livingEntity && livingEntity.hasEffect(MobEffects.BLINDNESS);
+        ResourceLocation world = level.dimension().location();
+        return new EnvironmentSnapshot(
+                level.getDayTime(),
+                player.getX(),
+                player.getY(),
+                player.getZ(),
+                world,
+                WorldIds.intern(world),
+                BIOME_CACHE.getBiome(),
+                BIOME_CACHE.getBiomeId(),
+                BIOME_CACHE.getPrecipitation(),
+                level.isRaining(),
+                level.isThundering(),
+                camera.getFluidInCamera(),
+                blindness,
+                thickFog
+        );
+    }
+
+    public long getDayTime() {
+        return this.dayTime;
+    }
+
+    public double getX() {
+        return this.x;
+    }
+
+    public double getY() {
+        return this.y;
+    }
+
+    public double getZ() {
+        return this.z;
+    }
+
+    public ResourceLocation getWorld() {
+        return this.world;
+    }
+
+    /**
+     * @return The interned id of the world.
+     * @see WorldIds
+     */
+    public int getWorldId() {
+        return this.worldId;
+    }
+
+    @Nullable
+    public ResourceLocation getBiome() {
+        return this.biome;
+    }
+
+    /**
+     * @return The interned id of the biome.
+     * @see BiomeIds
+     */
+    public int getBiomeId() {
+        return this.biomeId;
+    }
+
+    public Biome.Precipitation getPrecipitation() {
+        return this.precipitation;
+    }
+
+    public boolean isRaining() {
+        return this.raining;
+    }
+
+    public boolean isThundering() {
+        return this.thundering;
+    }
+
+    public FogType getFluid() {
+        return this.fluid;
+    }
+
+    public boolean hasBlindness() {
+        return this.blindness;
+    }
+
+    public boolean isThickFog() {
+        return this.thickFog;
+    }
+
+    public static class Builder {
+        private long dayTime = 0L;
+        private double x = 0.0D;
+        private double y = 64.0D;
+        private double z = 0.0D;
+        private ResourceLocation world = new ResourceLocation("overworld");
+        private ResourceLocation biome = new ResourceLocation("plains");
+        private Biome.Precipitation precipitation = Biome.Precipitation.RAIN;
+        private boolean raining = false;
+        private boolean thundering = false;
+        private FogType fluid = FogType.NONE;
+        private boolean blindness = false;
+        private boolean thickFog = false;
+
+        public Builder dayTime(long dayTime) {
+            this.dayTime = dayTime;
+            return this;
+        }
+
+        public Builder position(double x, double y, double z) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            return this;
+        }
+
+        public Builder world(ResourceLocation world) {
+            this.world = world;
+            return this;
+        }
+
+        public Builder biome(ResourceLocation biome, Biome.Precipitation precipitation) {
+            this.biome = biome;
+            this.precipitation = precipitation;
+            return this;
+        }
+
+        public Builder raining(boolean raining) {
+            this.raining = raining;
+            return this;
+        }
+
+        public Builder thundering(boolean thundering) {
+            this.thundering = thundering;
+            return this;
+        }
+
+        public Builder fluid(FogType fluid) {
+            this.fluid = fluid;
+            return this;
+        }
+
+        public Builder blindness(boolean blindness) {
+            this.blindness = blindness;
+            return this;
+        }
+
+        public Builder thickFog(boolean thickFog) {
+            this.thickFog = thickFog;
+            return this;
+        }
+
+        public EnvironmentSnapshot build() {
+            return new EnvironmentSnapshot(this.dayTime, this.x, this.y, this.z, this.world, this.biome, this.precipitation, this.raining, this.thundering, this.fluid, this.blindness, this.thickFog);
+        }
+    }
+}
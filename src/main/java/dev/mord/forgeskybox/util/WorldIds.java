@@ -0,0 +1,32 @@
+package dev.mord.forgeskybox.util;
+
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.minecraft.resources.ResourceLocation;
+
+/**
+ * Interns world ids into small dense integers, so world conditions can be tested with an integer compare
+ * instead of comparing resource locations.
+ */
+public final class WorldIds {
+    private static final Object2IntMap<ResourceLocation> IDS = new Object2IntOpenHashMap<>();
+
+    static {
+        IDS.defaultReturnValue(-1);
+    }
+
+    private WorldIds() {
+    }
+
+    /**
+     * @return The interned id of the world.
+     */
+    public static synchronized int intern(ResourceLocation world) {
+        int id = IDS.getInt(world);
+        if (id == -1) {
+            id = IDS.size();
+            IDS.put(world, id);
+        }
+        return id;
+    }
+}
@@ -5,10 +5,10 @@ import com.mojang.blaze3d.systems.RenderSystem;
 import com.mojang.serialization.Codec;
 import com.mojang.serialization.codecs.RecordCodecBuilder;
 import dev.mord.forgeskybox.FabricSkyBoxesClient;
+import dev.mord.forgeskybox.render.SkyboxRenderState;
 import org.lwjgl.opengl.GL14;
 
 import java.util.Arrays;
-import java.util.function.Consumer;
 
 public class Blend {
     public static final Blend DEFAULT = new Blend("", 0, 0, 0);
@@ -23,7 +23,16 @@ public class Blend {
     private final int dFactor;
     private final int equation;
 
-    private final Consumer<Float> blendFunc;
+    /**
+     * The blend state resolved from the type or the factors, applied by {@link #applyState()}.
+     * When {@link #defaultFunc} is set the factors are the ones of {@link RenderSystem#defaultBlendFunc()}.
+     */
+    private final boolean defaultFunc;
+    private final int resolvedSFactor;
+    private final int resolvedDFactor;
+    private final int resolvedEquation;
+    private final ColorMode colorMode;
+    private final Group group;
 
     public Blend(String type, int sFactor, int dFactor, int equation) {
         this.type = type;
@@ -31,82 +40,141 @@ public class Blend {
         this.dFactor = dFactor;
         this.equation = equation;
 
+        boolean defaultFunc = false;
+        int resolvedSFactor = GlStateManager.SourceFactor.SRC_ALPHA.value;
+        int resolvedDFactor = GlStateManager.DestFactor.ONE_MINUS_SRC_ALPHA.value;
+        int resolvedEquation = Equation.ADD.value;
+        ColorMode colorMode = ColorMode.ALPHA;
         if (!type.isEmpty()) {
             switch (type) {
-                case "add" -> blendFunc = (alpha) -> {
-                    RenderSystem.blendFunc(GlStateManager.SourceFactor.SRC_ALPHA, GlStateManager.DestFactor.ONE);
-                    RenderSystem.blendEquation(Equation.ADD.value);
-                    RenderSystem.setShaderColor(1.0F, 1.0F, 1.0F, alpha);
-                };
-                case "subtract" -> blendFunc = (alpha) -> {
-                    RenderSystem.blendFunc(GlStateManager.SourceFactor.ONE_MINUS_DST_COLOR, GlStateManager.DestFactor.ZERO);
-                    RenderSystem.blendEquation(Equation.ADD.value);
-                    RenderSystem.setShaderColor(alpha, alpha, alpha, 1.0F);
-                };
-                case "multiply" -> blendFunc = (alpha) -> {
-                    RenderSystem.blendFunc(GlStateManager.SourceFactor.DST_COLOR, GlStateManager.DestFactor.ZERO);
-                    RenderSystem.blendEquation(Equation.ADD.value);
-                    RenderSystem.setShaderColor(alpha, alpha, alpha, alpha);
-                };
-                case "screen" -> blendFunc = (alpha) -> {
-                    RenderSystem.blendFunc(GlStateManager.SourceFactor.ONE, GlStateManager.DestFactor.ONE_MINUS_SRC_COLOR);
-                    RenderSystem.blendEquation(Equation.ADD.value);
-                    RenderSystem.setShaderColor(alpha, alpha, alpha, 1.0F);
-                };
-                case "replace" -> blendFunc = (alpha) -> {
-                    RenderSystem.blendFunc(GlStateManager.SourceFactor.ZERO, GlStateManager.DestFactor.ONE);
-                    RenderSystem.blendEquation(Equation.ADD.value);
-                    RenderSystem.setShaderColor(1.0F, 1.0F, 1.0F, alpha);
-                };
-                case "alpha" -> blendFunc = (alpha) -> {
-                    RenderSystem.blendFunc(GlStateManager.SourceFactor.SRC_ALPHA, GlStateManager.DestFactor.ONE_MINUS_SRC_ALPHA);
-                    RenderSystem.blendEquation(Equation.ADD.value);
-                    RenderSystem.setShaderColor(1.0F, 1.0F, 1.0F, alpha);
-                };
-                case "burn" -> blendFunc = (alpha) -> {
-                    RenderSystem.blendFunc(GlStateManager.SourceFactor.ZERO, GlStateManager.DestFactor.ONE_MINUS_SRC_COLOR);
-                    RenderSystem.blendEquation(Equation.ADD.value);
-                    RenderSystem.setShaderColor(alpha, alpha, alpha, 1.0F);
-                };
-                case "dodge" -> blendFunc = (alpha) -> {
-                    RenderSystem.blendFunc(GlStateManager.SourceFactor.DST_COLOR, GlStateManager.DestFactor.ONE);
-                    RenderSystem.blendEquation(Equation.ADD.value);
-                    RenderSystem.setShaderColor(alpha, alpha, alpha, 1.0F);
-                };
-                case "darken" -> blendFunc = (alpha) -> {
-                    RenderSystem.blendFunc(GlStateManager.SourceFactor.ONE, GlStateManager.DestFactor.ONE);
-                    RenderSystem.blendEquation(Equation.MIN.value);
-                    RenderSystem.setShaderColor(1.0F, 1.0F, 1.0F, alpha);
-                };
-                case "lighten" -> blendFunc = (alpha) -> {
-                    RenderSystem.blendFunc(GlStateManager.SourceFactor.ONE, GlStateManager.DestFactor.ONE);
-                    RenderSystem.blendEquation(Equation.MAX.value);
-                    RenderSystem.setShaderColor(1.0F, 1.0F, 1.0F, alpha);
-                };
+                case "add" -> {
+                    resolvedSFactor = GlStateManager.SourceFactor.SRC_ALPHA.value;
+                    resolvedDFactor = GlStateManager.DestFactor.ONE.value;
+                }
+                case "subtract" -> {
+                    resolvedSFactor = GlStateManager.SourceFactor.ONE_MINUS_DST_COLOR.value;
+                    resolvedDFactor = GlStateManager.DestFactor.ZERO.value;
+                    colorMode = ColorMode.GRAY;
+                }
+                case "multiply" -> {
+                    resolvedSFactor = GlStateManager.SourceFactor.DST_COLOR.value;
+                    resolvedDFactor = GlStateManager.DestFactor.ZERO.value;
+                    colorMode = ColorMode.ALL;
+                }
+                case "screen" -> {
+                    resolvedSFactor = GlStateManager.SourceFactor.ONE.value;
+                    resolvedDFactor = GlStateManager.DestFactor.ONE_MINUS_SRC_COLOR.value;
+                    colorMode = ColorMode.GRAY;
+                }
+                case "replace" -> {
+                    resolvedSFactor = GlStateManager.SourceFactor.ZERO.value;
+                    resolvedDFactor = GlStateManager.DestFactor.ONE.value;
+                }
+                case "alpha" -> {
+                    resolvedSFactor = GlStateManager.SourceFactor.SRC_ALPHA.value;
+                    resolvedDFactor = GlStateManager.DestFactor.ONE_MINUS_SRC_ALPHA.value;
+                }
+                case "burn" -> {
+                    resolvedSFactor = GlStateManager.SourceFactor.ZERO.value;
+                    resolvedDFactor = GlStateManager.DestFactor.ONE_MINUS_SRC_COLOR.value;
+                    colorMode = ColorMode.GRAY;
+                }
+                case "dodge" -> {
+                    resolvedSFactor = GlStateManager.SourceFactor.DST_COLOR.value;
+                    resolvedDFactor = GlStateManager.DestFactor.ONE.value;
+                    colorMode = ColorMode.GRAY;
+                }
+                case "darken" -> {
+                    resolvedSFactor = GlStateManager.SourceFactor.ONE.value;
+                    resolvedDFactor = GlStateManager.DestFactor.ONE.value;
+                    resolvedEquation = Equation.MIN.value;
+                }
+                case "lighten" -> {
+                    resolvedSFactor = GlStateManager.SourceFactor.ONE.value;
+                    resolvedDFactor = GlStateManager.DestFactor.ONE.value;
+                    resolvedEquation = Equation.MAX.value;
+                }
                 default -> {
                     FabricSkyBoxesClient.getLogger().error("Blend mode is set to an invalid or unsupported value.");
-                    blendFunc = (alpha) -> {
-                        RenderSystem.defaultBlendFunc();
-                        RenderSystem.setShaderColor(1.0F, 1.0F, 1.0F, alpha);
-                    };
+                    defaultFunc = true;
                 }
             }
         } else if (this.isValidFactor(sFactor) && this.isValidFactor(dFactor) && this.isValidEquation(equation)) {
-            blendFunc = (alpha) -> {
-                RenderSystem.blendFunc(sFactor, dFactor);
-                RenderSystem.blendEquation(equation);
-                RenderSystem.setShaderColor(1.0F, 1.0F, 1.0F, alpha);
-            };
+            resolvedSFactor = sFactor;
+            resolvedDFactor = dFactor;
+            resolvedEquation = equation;
         } else {
-            blendFunc = (alpha) -> {
-                RenderSystem.defaultBlendFunc();
-                RenderSystem.setShaderColor(1.0F, 1.0F, 1.0F, alpha);
-            };
+            defaultFunc = true;
         }
+        this.defaultFunc = defaultFunc;
+        this.resolvedSFactor = resolvedSFactor;
+        this.resolvedDFactor = resolvedDFactor;
+        this.resolvedEquation = resolvedEquation;
+        this.colorMode = colorMode;
+        this.group = defaultFunc ? Group.NONE : Group.of(resolvedSFactor, resolvedDFactor, resolvedEquation);
     }
 
     public void applyBlendFunc(float alpha) {
-        blendFunc.accept(alpha);
+        this.applyState();
+        this.applyColor(alpha);
+    }
+
+    /**
+     * Applies the blend function and equation, which layers with the same state can share.
+     */
+    public void applyState() {
+        if (this.defaultFunc) {
+            SkyboxRenderState.defaultBlendFunc();
+        } else {
+            SkyboxRenderState.blendFunc(this.resolvedSFactor, this.resolvedDFactor);
+        }
+        SkyboxRenderState.blendEquation(this.resolvedEquation);
+    }
+
+    /**
+     * Applies the alpha of a layer as the shader color.
+     */
+    public void applyColor(float alpha) {
+        switch (this.colorMode) {
+            case ALPHA -> SkyboxRenderState.shaderColor(1.0F, 1.0F, 1.0F, alpha);
+            case GRAY -> SkyboxRenderState.shaderColor(alpha, alpha, alpha, 1.0F);
+            case ALL -> SkyboxRenderState.shaderColor(alpha, alpha, alpha, alpha);
+        }
+    }
+
+    /**
+     * @return Whether both blends apply the same blend function and equation.
+     */
+    public boolean hasSameState(Blend other) {
+        return this == other || (this.defaultFunc == other.defaultFunc && this.resolvedSFactor == other.resolvedSFactor
+                && this.resolvedDFactor == other.resolvedDFactor && this.resolvedEquation == other.resolvedEquation);
+    }
+
+    /**
+     * @return A key equal only for blends with the same state, to sort layers by. Blend factors and equations
+     * are GL enums below 0x10000, so each keeps all its bits.
+     */
+    public long getStateKey() {
+        return this.defaultFunc ? -1L : (long) this.resolvedEquation << 32 | (long) this.resolvedSFactor << 16 | this.resolvedDFactor;
+    }
+
+    /**
+     * @return Whether an opaque source drawn at full alpha fully replaces the destination.
+     */
+    public boolean isOpaqueAtFullAlpha() {
+        if (this.defaultFunc) {
+            return true;
+        }
+        return this.colorMode == ColorMode.ALPHA && this.resolvedEquation == Equation.ADD.value
+                && (this.resolvedSFactor == GlStateManager.SourceFactor.ONE.value || this.resolvedSFactor == GlStateManager.SourceFactor.SRC_ALPHA.value)
+                && (this.resolvedDFactor == GlStateManager.DestFactor.ZERO.value || this.resolvedDFactor == GlStateManager.DestFactor.ONE_MINUS_SRC_ALPHA.value);
+    }
+
+    /**
+     * @return The group of blends this one commutes with.
+     */
+    public Group getGroup() {
+        return this.group;
     }
 
     public String getType() {
@@ -133,6 +201,68 @@ public class Blend {
         return Arrays.stream(Equation.values()).filter(equation1 -> equation == equation1.value).count() == 1;
     }
 
+    /**
+     * How the alpha of a layer is applied to the shader color.
+     */
+    private enum ColorMode {
+        ALPHA,
+        GRAY,
+        ALL
+    }
+
+    /**
+     * Blends of the same group commute: consecutive layers using any blends of one group give the
+     * same result in any order, so they can be reordered to share state.
+     */
+    public enum Group {
+        /**
+         * The result depends on the order, layers keep their place.
+         */
+        NONE,
+        /**
+         * The source is added to the destination.
+         */
+        ADDITIVE,
+        /**
+         * The destination is scaled by the source.
+         */
+        MULTIPLICATIVE,
+        /**
+         * The destination and source are screened, 1 - (1 - src)(1 - dst).
+         */
+        SCREEN,
+        MIN,
+        MAX;
+
+        private static Group of(int sFactor, int dFactor, int equation) {
+            if (equation == Equation.MIN.value) {
+                return MIN;
+            } else if (equation == Equation.MAX.value) {
+                return MAX;
+            } else if (equation != Equation.ADD.value) {
+                return NONE;
+            }
+            if (dFactor == GlStateManager.DestFactor.ONE.value && !readsDestination(sFactor)) {
+                return ADDITIVE;
+            }
+            // dodge, dst * (1 + src), is left out: the framebuffer clamps it, so it doesn't commute with scaling
+            if (sFactor == GlStateManager.SourceFactor.ZERO.value && !readsDestination(dFactor)
+                    || sFactor == GlStateManager.SourceFactor.DST_COLOR.value && dFactor == GlStateManager.DestFactor.ZERO.value) {
+                return MULTIPLICATIVE;
+            }
+            if (sFactor == GlStateManager.SourceFactor.ONE.value && dFactor == GlStateManager.DestFactor.ONE_MINUS_SRC_COLOR.value) {
+                return SCREEN;
+            }
+            return NONE;
+        }
+
+        private static boolean readsDestination(int factor) {
+            return factor == GlStateManager.SourceFactor.DST_COLOR.value || factor == GlStateManager.SourceFactor.ONE_MINUS_DST_COLOR.value
+                    || factor == GlStateManager.SourceFactor.DST_ALPHA.value || factor == GlStateManager.SourceFactor.ONE_MINUS_DST_ALPHA.value
+                    || factor == GlStateManager.SourceFactor.SRC_ALPHA_SATURATE.value;
+        }
+    }
+
     public enum Equation {
         ADD(GL14.GL_FUNC_ADD),
         SUBTRACT(GL14.GL_FUNC_SUBTRACT),
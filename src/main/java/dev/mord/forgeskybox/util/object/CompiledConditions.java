@@ -0,0 +1,184 @@
+package dev.mord.forgeskybox.util.object;
+
+import dev.mord.forgeskybox.util.BiomeIds;
+import dev.mord.forgeskybox.util.EnvironmentSnapshot;
+import dev.mord.forgeskybox.util.WorldIds;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.level.biome.Biome;
+import net.minecraft.world.level.material.FogType;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * The conditions of a skybox compiled into a short-circuiting pipeline.
+ * Empty conditions are dropped and the remaining checks run in the order of their estimated cost,
+ * so most skyboxes that don't match are rejected by a single integer compare of the interned world ids.
+ */
+public class CompiledConditions {
+    private final Check[] checks;
+
+    private CompiledConditions(Check[] checks) {
+        this.checks = checks;
+    }
+
+    /**
+     * Tests the environment against every check of the pipeline, in order.
+     *
+     * @param environment The environment captured for the current frame.
+     * @return The type of the first check that rejected the environment, or {@code null} if all of them passed.
+     */
+    @Nullable
+    public Type test(EnvironmentSnapshot environment) {
+        for (Check check : this.checks) {
+            if (!check.predicate.test(environment)) {
+                return check.type;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return The types of the checks in this pipeline, in evaluation order.
+     */
+    public List<Type> getTypes() {
+        List<Type> types = new ArrayList<>(this.checks.length);
+        for (Check check : this.checks) {
+            types.add(check.type);
+        }
+        return types;
+    }
+
+    public static CompiledConditions compile(List<ResourceLocation> worlds, List<ResourceLocation> biomes, List<String> weather, List<MinMaxEntry> xRanges, List<MinMaxEntry> yRanges, List<MinMaxEntry> zRanges) {
+        List<Check> checks = new ArrayList<>();
+        if (!worlds.isEmpty()) {
+            int[] worldIds = worlds.stream().mapToInt(WorldIds::intern).toArray();
+            if (worldIds.length == 1) {
+                int worldId = worldIds[0];
+                checks.add(new Check(Type.WORLD, 1, environment -> environment.getWorldId() == worldId));
+            } else {
+                checks.add(new Check(Type.WORLD, worldIds.length, environment -> contains(worldIds, environment.getWorldId())));
+            }
+        }
+        // effects always apply, whatever the skybox conditions are
+        checks.add(new Check(Type.EFFECT, 0, CompiledConditions::checkEffect));
+        if (!weather.isEmpty()) {
+            boolean thunder = weather.contains("thunder");
+            boolean snow = weather.contains("snow");
+            boolean rain = weather.contains("rain");
+            boolean clear = weather.contains("clear");
+            checks.add(new Check(Type.WEATHER, 0, environment -> checkWeather(environment, thunder, snow, rain, clear)));
+        }
+        if (!yRanges.isEmpty()) {
+            IntervalIndex yIndex = IntervalIndex.of(yRanges);
+            checks.add(new Check(Type.Y_RANGES, yIndex.size(), environment -> yIndex.contains((float) environment.getY())));
+        }
+        if (!xRanges.isEmpty()) {
+            IntervalIndex xIndex = IntervalIndex.of(xRanges);
+            checks.add(new Check(Type.X_RANGES, xIndex.size(), environment -> xIndex.contains((float) environment.getX())));
+        }
+        if (!zRanges.isEmpty()) {
+            IntervalIndex zIndex = IntervalIndex.of(zRanges);
+            checks.add(new Check(Type.Z_RANGES, zIndex.size(), environment -> zIndex.contains((float) environment.getZ())));
+        }
+        if (!biomes.isEmpty()) {
+            long[] biomeIds = internBiomes(biomes);
+            checks.add(new Check(Type.BIOME, biomes.size(), environment -> containsBiome(biomeIds, environment.getBiomeId())));
+        }
+        // stable, so checks of the same cost keep the selectivity order above
+        checks.sort(Comparator.comparingInt((Check check) -> check.type.cost).thenComparingInt(check -> check.size));
+        return new CompiledConditions(checks.toArray(new Check[0]));
+    }
+
+    private static boolean contains(int[] ids, int id) {
+        for (int candidate : ids) {
+            if (candidate == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return A bitset of the interned ids of the biomes.
+     */
+    private static long[] internBiomes(List<ResourceLocation> biomes) {
+        int[] ids = new int[biomes.size()];
+        int maxId = 0;
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = BiomeIds.intern(biomes.get(i));
+            maxId = Math.max(maxId, ids[i]);
+        }
+        long[] bits = new long[(maxId >> 6) + 1];
+        for (int id : ids) {
+            if (id != BiomeIds.UNKNOWN) {
+                bits[id >> 6] |= 1L << id;
+            }
+        }
+        return bits;
+    }
+
+    private static boolean containsBiome(long[] biomeIds, int biomeId) {
+        int word = biomeId >> 6;
+        // unknown biomes are negative, biomes interned after compiling are past the end
+        return biomeId >= 0 && word < biomeIds.length && (biomeIds[word] & (1L << biomeId)) != 0;
+    }
+
+    /*
+		Check if an effect that should prevent skybox from showing
+     */
+    private static boolean checkEffect(EnvironmentSnapshot environment) {
+        if (environment.isThickFog())
+            return false;
+
+        FogType cameraSubmersionType = environment.getFluid();
+        if (cameraSubmersionType == FogType.POWDER_SNOW || cameraSubmersionType == FogType.LAVA)
+            return false;
+
+        return !environment.hasBlindness();
+    }
+
+    private static boolean checkWeather(EnvironmentSnapshot environment, boolean thunder, boolean snow, boolean rain, boolean clear) {
+        if (thunder && environment.isThundering()) {
+            return true;
+        } else if (snow && environment.isRaining() && environment.getPrecipitation() == Biome.Precipitation.SNOW) {
+            return true;
+        } else if (rain && environment.isRaining() && !environment.isThundering()) {
+            return true;
+        } else return clear && !environment.isRaining();
+    }
+
+    /**
+     * The kinds of checks a pipeline can contain, with an estimate of their relative evaluation cost.
+     */
+    public enum Type {
+        WORLD(0),
+        EFFECT(1),
+        WEATHER(1),
+        BIOME(1),
+        Y_RANGES(2),
+        X_RANGES(2),
+        Z_RANGES(2);
+
+        private final int cost;
+
+        Type(int cost) {
+            this.cost = cost;
+        }
+    }
+
+    private static class Check {
+        private final Type type;
+        private final int size;
+        private final Predicate<EnvironmentSnapshot> predicate;
+
+        private Check(Type type, int size, Predicate<EnvironmentSnapshot> predicate) {
+            this.type = type;
+            this.size = size;
+            this.predicate = predicate;
+        }
+    }
+}
@@ -2,6 +2,11 @@ package dev.mord.forgeskybox.util.object;
 
 import com.mojang.serialization.Codec;
 import com.mojang.serialization.codecs.RecordCodecBuilder;
+import dev.mord.forgeskybox.util.Utils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class Fade {
     public static final Fade ZERO = new Fade(0, 0, 0, 0, false);
@@ -12,11 +17,24 @@ public class Fade {
             Codec.INT.fieldOf("endFadeOut").forGetter(Fade::getEndFadeOut),
             Codec.BOOL.optionalFieldOf("alwaysOn", false).forGetter(Fade::isAlwaysOn)
     ).apply(instance, Fade::new));
+    public static final int DAY_LENGTH = 24000;
+    /**
+     * Baked fade curves, shared between fades with the same window as a curve is {@value DAY_LENGTH} floats and ints.
+     */
+    private static final Map<List<Integer>, Curve> CURVES = new ConcurrentHashMap<>();
     private final int startFadeIn;
     private final int endFadeIn;
     private final int startFadeOut;
     private final int endFadeOut;
     private final boolean alwaysOn;
+    /**
+     * The fade alpha for every tick of the day, {@code null} if this fade is always on.
+     */
+    private final float[] curve;
+    /**
+     * The ticks until the fade alpha is above zero for every tick of the day, {@code null} if this fade is always on.
+     */
+    private final int[] ticksUntilVisible;
 
     public Fade(int startFadeIn, int endFadeIn, int startFadeOut, int endFadeOut, boolean alwaysOn) {
         this.startFadeIn = startFadeIn;
@@ -24,6 +42,126 @@ public class Fade {
         this.startFadeOut = startFadeOut;
         this.endFadeOut = endFadeOut;
         this.alwaysOn = alwaysOn;
+        Curve curve = alwaysOn ? null : CURVES.computeIfAbsent(List.of(startFadeIn, endFadeIn, startFadeOut, endFadeOut), key -> bakeCurve(startFadeIn, endFadeIn, startFadeOut, endFadeOut));
+        this.curve = curve != null ? curve.alphas() : null;
+        this.ticksUntilVisible = curve != null ? curve.ticksUntilVisible() : null;
+    }
+
+    /**
+     * Gets the fade alpha, without {@code maxAlpha} applied, at the given day time.
+     *
+     * @param dayTime The current day time of the world
+     * @return The fade alpha between 0 and 1
+     */
+    public float getAlpha(long dayTime) {
+        if (this.alwaysOn) {
+            return 1f;
+        }
+        int currentTime = (int) (dayTime % DAY_LENGTH);
+        if (currentTime < 0) {
+            // negative day times never reach the curve, keep the original behaviour for them
+            return computeAlpha(currentTime, this.startFadeIn, this.endFadeIn, this.startFadeOut, this.endFadeOut);
+        }
+        return this.curve[currentTime];
+    }
+
+    /**
+     * @param dayTime The current day time of the world
+     * @param ticks   How far ahead to look, in ticks
+     * @return Whether the fade alpha is above zero at any time between the day time and the given number of ticks after it
+     */
+    public boolean isVisibleWithin(long dayTime, int ticks) {
+        if (this.alwaysOn) {
+            return true;
+        }
+        int span = Math.min(ticks, DAY_LENGTH - 1);
+        int currentTime = (int) (dayTime % DAY_LENGTH);
+        if (currentTime >= 0) {
+            return this.ticksUntilVisible[currentTime] <= span;
+        }
+        // negative day times never reach the curve, look at every tick like getAlpha does
+        for (int tick = 0; tick <= span; tick++) {
+            if (this.getAlpha(dayTime + tick) > 0f) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Curve bakeCurve(int startFadeIn, int endFadeIn, int startFadeOut, int endFadeOut) {
+        float[] alphas = new float[DAY_LENGTH];
+        for (int tick = 0; tick < DAY_LENGTH; tick++) {
+            alphas[tick] = computeAlpha(tick, startFadeIn, endFadeIn, startFadeOut, endFadeOut);
+        }
+        // walks the day backwards twice, so the ticks before midnight see the visible ticks after it
+        int[] ticksUntilVisible = new int[DAY_LENGTH];
+        int ticksUntil = Integer.MAX_VALUE;
+        for (int i = 2 * DAY_LENGTH - 1; i >= 0; i--) {
+            int tick = i % DAY_LENGTH;
+            if (alphas[tick] > 0f) {
+                ticksUntil = 0;
+            } else if (ticksUntil != Integer.MAX_VALUE) {
+                ticksUntil++;
+            }
+            if (i < DAY_LENGTH) {
+                ticksUntilVisible[tick] = ticksUntil;
+            }
+        }
+        return new Curve(alphas, ticksUntilVisible);
+    }
+
+    /**
+     * Calculates the fade alpha for a single tick of the day, used to bake the fade curve.
+     */
+    static float computeAlpha(int currentTime, int startFadeIn, int endFadeIn, int startFadeOut, int endFadeOut) {
+        int durationIn = Utils.getTicksBetween(startFadeIn, endFadeIn);
+        int durationOut = Utils.getTicksBetween(startFadeOut, endFadeOut);
+
+        startFadeIn = startFadeIn % DAY_LENGTH;
+        endFadeIn = endFadeIn % DAY_LENGTH;
+
+        if (endFadeIn < startFadeIn) {
+            endFadeIn += DAY_LENGTH;
+        }
+
+        startFadeOut = startFadeOut % DAY_LENGTH;
+        endFadeOut = endFadeOut % DAY_LENGTH;
+
+        if (startFadeOut < endFadeIn) {
+            startFadeOut += DAY_LENGTH;
+        }
+
+        if (endFadeOut < startFadeOut) {
+            endFadeOut += DAY_LENGTH;
+        }
+
+        int tempInTime = currentTime;
+
+        if (tempInTime < startFadeIn) {
+            tempInTime += DAY_LENGTH;
+        }
+
+        int tempFullTime = currentTime;
+
+        if (tempFullTime < endFadeIn) {
+            tempFullTime += DAY_LENGTH;
+        }
+
+        int tempOutTime = currentTime;
+
+        if (tempOutTime < startFadeOut) {
+            tempOutTime += DAY_LENGTH;
+        }
+
+        if (startFadeIn < tempInTime && endFadeIn >= tempInTime) {
+            return 1f - (((float) (endFadeIn - tempInTime)) / durationIn); // fading in
+        } else if (endFadeIn < tempFullTime && startFadeOut >= tempFullTime) {
+            return 1f; // fully faded in
+        } else if (startFadeOut < tempOutTime && endFadeOut >= tempOutTime) {
+            return (float) (endFadeOut - tempOutTime) / durationOut; // fading out
+        } else {
+            return 0f; // default not showing
+        }
     }
 
     public int getStartFadeIn() {
@@ -45,4 +183,10 @@ public class Fade {
     public boolean isAlwaysOn() {
         return alwaysOn;
     }
+
+    /**
+     * @param ticksUntilVisible {@link Integer#MAX_VALUE} at every tick if the fade alpha is never above zero.
+     */
+    private record Curve(float[] alphas, int[] ticksUntilVisible) {
+    }
 }
\ No newline at end of file
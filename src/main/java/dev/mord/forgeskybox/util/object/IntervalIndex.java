@@ -0,0 +1,72 @@
+package dev.mord.forgeskybox.util.object;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A list of {@link MinMaxEntry} normalized into sorted, merged and half-open intervals,
+ * answering membership with a binary search and no allocation.
+ */
+public class IntervalIndex {
+    private final float[] mins;
+    private final float[] maxes;
+
+    private IntervalIndex(float[] mins, float[] maxes) {
+        this.mins = mins;
+        this.maxes = maxes;
+    }
+
+    public static IntervalIndex of(List<MinMaxEntry> entries) {
+        List<MinMaxEntry> sorted = new ArrayList<>(entries);
+        sorted.sort(Comparator.comparingDouble(MinMaxEntry::getMin));
+        float[] mins = new float[sorted.size()];
+        float[] maxes = new float[sorted.size()];
+        int size = 0;
+        for (MinMaxEntry entry : sorted) {
+            if (entry.getMin() >= entry.getMax()) {
+                // [min, max) is empty
+                continue;
+            }
+            if (size > 0 && entry.getMin() <= maxes[size - 1]) {
+                maxes[size - 1] = Math.max(maxes[size - 1], entry.getMax());
+            } else {
+                mins[size] = entry.getMin();
+                maxes[size] = entry.getMax();
+                size++;
+            }
+        }
+        float[] trimmedMins = new float[size];
+        float[] trimmedMaxes = new float[size];
+        System.arraycopy(mins, 0, trimmedMins, 0, size);
+        System.arraycopy(maxes, 0, trimmedMaxes, 0, size);
+        return new IntervalIndex(trimmedMins, trimmedMaxes);
+    }
+
+    /**
+     * @return Whether the value is within any of the intervals, min inclusive and max exclusive.
+     */
+    public boolean contains(float value) {
+        // find the last interval starting at or before the value
+        int low = 0;
+        int high = this.mins.length - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (this.mins[mid] <= value) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found >= 0 && value < this.maxes[found];
+    }
+
+    /**
+     * @return The amount of intervals after merging.
+     */
+    public int size() {
+        return this.mins.length;
+    }
+}
@@ -1,10 +1,14 @@
 package dev.mord.forgeskybox.util.object;
 
 import com.google.common.collect.ImmutableList;
+import com.mojang.blaze3d.vertex.PoseStack;
+import com.mojang.math.Quaternion;
 import com.mojang.math.Vector3f;
 import com.mojang.serialization.Codec;
 import com.mojang.serialization.DataResult;
 import com.mojang.serialization.codecs.RecordCodecBuilder;
+import net.minecraft.util.Mth;
+import org.jetbrains.annotations.Nullable;
 
 public class Rotation {
     private static final Codec<Vector3f> VEC_3_F = Codec.FLOAT.listOf().comapFlatMap((list) -> {
@@ -23,11 +27,82 @@ public class Rotation {
     private final Vector3f staticRot;
     private final Vector3f axisRot;
     private final float rotationSpeed;
+    /**
+     * The rotations above composed once, {@code null} when they don't rotate anything.
+     */
+    @Nullable
+    private final Quaternion staticQuaternion;
+    @Nullable
+    private final Quaternion axisQuaternion;
+    @Nullable
+    private final Quaternion inverseAxisQuaternion;
+    /**
+     * Reused by {@link #applyAxisRotation(PoseStack, Quaternion)}, rendering only happens on one thread.
+     */
+    private static final Quaternion SCRATCH = Quaternion.ONE.copy();
 
     public Rotation(Vector3f staticRot, Vector3f axisRot, float rotationSpeed) {
         this.staticRot = staticRot;
         this.axisRot = axisRot;
         this.rotationSpeed = rotationSpeed;
+        this.staticQuaternion = compose(staticRot);
+        this.axisQuaternion = compose(axisRot);
+        if (this.axisQuaternion != null) {
+            this.inverseAxisQuaternion = this.axisQuaternion.copy();
+            this.inverseAxisQuaternion.conj();
+        } else {
+            this.inverseAxisQuaternion = null;
+        }
+    }
+
+    /**
+     * Composes rotations around X, then Y, then Z, like applying them one after the other.
+     */
+    @Nullable
+    private static Quaternion compose(Vector3f degrees) {
+        if (degrees.x() == 0.0F && degrees.y() == 0.0F && degrees.z() == 0.0F) {
+            return null;
+        }
+        Quaternion quaternion = Vector3f.XP.rotationDegrees(degrees.x());
+        quaternion.mul(Vector3f.YP.rotationDegrees(degrees.y()));
+        quaternion.mul(Vector3f.ZP.rotationDegrees(degrees.z()));
+        return quaternion;
+    }
+
+    /**
+     * Sets the quaternion to a rotation around one of the unit axes, without allocating.
+     *
+     * @return The quaternion.
+     */
+    public static Quaternion setRotation(Quaternion quaternion, Vector3f axis, float degrees) {
+        float halfAngle = degrees * Mth.DEG_TO_RAD * 0.5F;
+        float sin = (float) Math.sin(halfAngle);
+        quaternion.set(axis.x() * sin, axis.y() * sin, axis.z() * sin, (float) Math.cos(halfAngle));
+        return quaternion;
+    }
+
+    /**
+     * Applies the static rotation.
+     */
+    public void applyStatic(PoseStack matrices) {
+        if (this.staticQuaternion != null) {
+            matrices.mulPose(this.staticQuaternion);
+        }
+    }
+
+    /**
+     * Applies the rotation around the axis: the axis rotation, the given rotation, then the inverse of the axis rotation.
+     */
+    public void applyAxisRotation(PoseStack matrices, Quaternion rotation) {
+        if (this.axisQuaternion == null) {
+            matrices.mulPose(rotation);
+            return;
+        }
+        Quaternion quaternion = SCRATCH;
+        quaternion.set(this.axisQuaternion.i(), this.axisQuaternion.j(), this.axisQuaternion.k(), this.axisQuaternion.r());
+        quaternion.mul(rotation);
+        quaternion.mul(this.inverseAxisQuaternion);
+        matrices.mulPose(quaternion);
     }
 
     public Vector3f getStatic() {
@@ -0,0 +1,135 @@
+package dev.mord.forgeskybox;
+
+import com.mojang.blaze3d.vertex.PoseStack;
+import com.mojang.math.Matrix4f;
+import dev.mord.forgeskybox.mixin.skybox.WorldRendererAccess;
+import dev.mord.forgeskybox.skyboxes.AbstractSkybox;
+import dev.mord.forgeskybox.skyboxes.SkyboxType;
+import dev.mord.forgeskybox.util.EnvironmentSnapshot;
+import dev.mord.forgeskybox.util.object.*;
+import net.minecraft.client.Camera;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.level.biome.Biome;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Planning runs every frame, it must not allocate once the skyboxes are set up.
+ */
+class PlanFrameAllocationTest {
+    private static final ResourceLocation OVERWORLD = new ResourceLocation("overworld");
+    private static final ResourceLocation PLAINS = new ResourceLocation("plains");
+    private static final int SKYBOXES = 1000;
+    private static final int FRAMES = 10000;
+
+    private final SkyboxManager manager = SkyboxManager.getInstance();
+    private final EnvironmentSnapshot[] environments = new EnvironmentSnapshot[2400];
+    private SkyboxConfig.EvaluationMode evaluationMode;
+
+    @BeforeEach
+    void setUp() {
+        this.evaluationMode = SkyboxConfig.evaluationMode;
+        this.manager.clearSkyboxes();
+        for (int i = 0; i < SKYBOXES; i++) {
+            this.manager.addSkybox(skybox(i));
+        }
+        // a full day in steps of 10 ticks, so skyboxes keep fading in and out and the layer order changes
+        for (int i = 0; i < this.environments.length; i++) {
+            this.environments[i] = new EnvironmentSnapshot.Builder()
+                    .dayTime(i * 10L)
+                    .position(10.0D, 70.0D, -10.0D)
+                    .world(OVERWORLD)
+                    .biome(PLAINS, Biome.Precipitation.RAIN)
+                    .build();
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.manager.clearSkyboxes();
+        SkyboxConfig.evaluationMode = this.evaluationMode;
+    }
+
+    @Test
+    void planningPerFrameDoesNotAllocate() {
+        SkyboxConfig.evaluationMode = SkyboxConfig.EvaluationMode.FRAME;
+        this.assertNoAllocations(false);
+    }
+
+    @Test
+    void planningPerTickDoesNotAllocate() {
+        SkyboxConfig.evaluationMode = SkyboxConfig.EvaluationMode.TICK;
+        this.assertNoAllocations(true);
+    }
+
+    private void assertNoAllocations(boolean tick) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assertTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long threadId = Thread.currentThread().getId();
+
+        // the first frames size the plan and index the worlds
+        float warmUp = this.planFrames(FRAMES, tick);
+        // whatever reading the counter allocates itself
+        long overhead = -threads.getThreadAllocatedBytes(threadId) + threads.getThreadAllocatedBytes(threadId);
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        float totalAlpha = this.planFrames(FRAMES, tick);
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before - overhead;
+
+        assertTrue(warmUp > 0f && totalAlpha > 0f, "no skybox was ever visible");
+        assertEquals(0L, allocated, "bytes allocated while planning " + FRAMES + " frames");
+    }
+
+    private float planFrames(int frames, boolean tick) {
+        float totalAlpha = 0f;
+        for (int frame = 0; frame < frames; frame++) {
+            EnvironmentSnapshot environment = this.environments[frame % this.environments.length];
+            if (tick) {
+                this.manager.tick(environment);
+            }
+            totalAlpha += this.manager.planFrame(environment, 0.5F).getTotalAlpha();
+        }
+        return totalAlpha;
+    }
+
+    private static AbstractSkybox skybox(int index) {
+        // spread the fade windows over the day so skyboxes fade in and out at different times
+        int start = (index * 997) % Fade.DAY_LENGTH;
+        Fade fade = new Fade(start, start + 1000, start + 6000, start + 7000, false);
+        DefaultProperties properties = new DefaultProperties.Builder().fade(fade).transitionSpeed(0.05F).build();
+        Conditions.Builder conditions = new Conditions.Builder()
+                .worlds(OVERWORLD)
+                .weather(Weather.CLEAR, Weather.RAIN)
+                .xRanges(new MinMaxEntry(-1000, 1000))
+                .zRanges(new MinMaxEntry(-1000, 1000));
+        for (int i = 0; i < 16; i++) {
+            conditions.yRanges(new MinMaxEntry(i * 16 - 64, i * 16 - 56));
+        }
+        for (int i = 0; i < 15; i++) {
+            conditions.biomes(new ResourceLocation("test", "biome_" + i));
+        }
+        return new EmptySkybox(properties, conditions.biomes(PLAINS).build(), Decorations.DEFAULT);
+    }
+
+    private static class EmptySkybox extends AbstractSkybox {
+        EmptySkybox(DefaultProperties properties, Conditions conditions, Decorations decorations) {
+            super(properties, conditions, decorations);
+        }
+
+        @Override
+        public void render(WorldRendererAccess worldRendererAccess, PoseStack matrices, Matrix4f matrix4f, float tickDelta, Camera camera, boolean thickFog) {
+        }
+
+        @Override
+        public SkyboxType<? extends AbstractSkybox> getType() {
+            return SkyboxType.MONO_COLOR_SKYBOX;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package dev.mord.forgeskybox.render;
+
+import dev.mord.forgeskybox.util.object.Texture;
+import dev.mord.forgeskybox.util.object.Textures;
+import net.minecraft.resources.ResourceLocation;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Drives the buffer resolution of square textured skyboxes with caches recording the uploads and releases
+ * they issue, with strings standing in for vertex buffers.
+ */
+class SkyboxMeshesTest {
+    private final List<String> commands = new ArrayList<>();
+    private final BufferCache<SkyboxMeshes.FaceKey, String> faces = new BufferCache<>(key -> this.upload("face " + key), this::release);
+    private final BufferCache<List<SkyboxMeshes.FaceKey>, String> cubes = new BufferCache<>(key -> this.upload("cube " + key), this::release);
+
+    @Test
+    void framesDrawResidentBuffersOnly() {
+        List<Textures> skyboxes = List.of(
+                sheet(new ResourceLocation("test", "sky/sheet.png")),
+                separate("day"),
+                // same UVs as the other separate faces, only the textures differ
+                separate("night")
+        );
+        List<Textures> animation = new ArrayList<>();
+        for (int frame = 0; frame < 4; frame++) {
+            animation.add(separate("frame_" + frame));
+        }
+
+        this.renderFrame(skyboxes, animation.get(0));
+        // the sheet cube and the six faces shared by every skybox with separate textures
+        assertEquals(7, this.count("upload"));
+
+        this.commands.clear();
+        for (int frame = 1; frame < 1000; frame++) {
+            this.renderFrame(skyboxes, animation.get(frame % animation.size()));
+        }
+        assertEquals(0, this.count("upload"), "vertex uploads after the first frame");
+        assertEquals(999 * (1 + 6 + 6 + 6), this.count("draw"));
+    }
+
+    @Test
+    void releaseFreesEveryBuffer() {
+        List<Textures> skyboxes = List.of(sheet(new ResourceLocation("test", "sky/sheet.png")), separate("day"));
+        this.renderFrame(skyboxes, null);
+        this.faces.releaseAll();
+        this.cubes.releaseAll();
+        assertEquals(7, this.count("release"));
+        assertEquals(0, this.faces.size() + this.cubes.size());
+
+        this.commands.clear();
+        this.renderFrame(skyboxes, null);
+        this.renderFrame(skyboxes, null);
+        assertEquals(7, this.count("upload"), "released buffers are uploaded again once");
+    }
+
+    /**
+     * Resolves and draws the buffers of every skybox, resolving them every frame like the sprite sheet fallback does.
+     */
+    private void renderFrame(List<Textures> skyboxes, Textures animationFrame) {
+        for (Textures textures : skyboxes) {
+            this.draw(textures);
+        }
+        if (animationFrame != null) {
+            this.draw(animationFrame);
+        }
+    }
+
+    private void draw(Textures textures) {
+        for (String buffer : SkyboxMeshes.resolve(textures, this.faces, this.cubes, String[]::new)) {
+            this.commands.add("draw " + buffer);
+        }
+    }
+
+    private String upload(String buffer) {
+        this.commands.add("upload " + buffer);
+        return buffer;
+    }
+
+    private void release(String buffer) {
+        this.commands.add("release " + buffer);
+    }
+
+    private long count(String command) {
+        return this.commands.stream().filter(submitted -> submitted.startsWith(command + " ")).count();
+    }
+
+    /**
+     * Six faces on one texture, in the layout of single sprite skyboxes.
+     */
+    private static Textures sheet(ResourceLocation textureId) {
+        Texture texture = new Texture(textureId);
+        return new Textures(
+                texture.withUV(1.0F / 3.0F, 1.0F / 2.0F, 2.0F / 3.0F, 1),
+                texture.withUV(2.0F / 3.0F, 0, 1, 1.0F / 2.0F),
+                texture.withUV(2.0F / 3.0F, 1.0F / 2.0F, 1, 1),
+                texture.withUV(0, 1.0F / 2.0F, 1.0F / 3.0F, 1),
+                texture.withUV(1.0F / 3.0F, 0, 2.0F / 3.0F, 1.0F / 2.0F),
+                texture.withUV(0, 0, 1.0F / 3.0F, 1.0F / 2.0F)
+        );
+    }
+
+    private static Textures separate(String name) {
+        return new Textures(
+                new ResourceLocation("test", "sky/" + name + "_north.png"),
+                new ResourceLocation("test", "sky/" + name + "_south.png"),
+                new ResourceLocation("test", "sky/" + name + "_east.png"),
+                new ResourceLocation("test", "sky/" + name + "_west.png"),
+                new ResourceLocation("test", "sky/" + name + "_top.png"),
+                new ResourceLocation("test", "sky/" + name + "_bottom.png")
+        );
+    }
+}
@@ -0,0 +1,187 @@
+package dev.mord.forgeskybox.util.object;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class FadeTest {
+    /**
+     * Fade windows as startFadeIn, endFadeIn, startFadeOut, endFadeOut.
+     */
+    private static final int[][] WINDOWS = {
+            // within a single day
+            {1000, 2000, 10000, 11000},
+            // fading in across midnight
+            {23000, 1000, 10000, 11000},
+            // fully faded in across midnight
+            {20000, 21000, 2000, 3000},
+            // fading out across midnight
+            {12000, 13000, 23500, 500},
+            // the whole window across midnight
+            {22000, 23000, 500, 1500},
+            // instant fades
+            {6000, 6000, 18000, 18000},
+            {0, 0, 0, 0},
+            // fade out before fade in, visible over the night
+            {18000, 19000, 5000, 6000},
+            // times past a day and at its length
+            {24000, 25000, 36000, 48000},
+            {47000, 49000, 70000, 71000},
+            // fade out overlapping fade in
+            {1000, 5000, 3000, 8000},
+            // the last tick of the day
+            {23999, 0, 23998, 23999}
+    };
+
+    @Test
+    void bakedCurveMatchesOriginalAlgorithm() {
+        for (int[] window : WINDOWS) {
+            Fade fade = new Fade(window[0], window[1], window[2], window[3], false);
+            for (int tick = 0; tick < Fade.DAY_LENGTH; tick++) {
+                float expected = originalAlpha(tick, window[0], window[1], window[2], window[3]);
+                assertEquals(expected, fade.getAlpha(tick), () -> "window " + windowName(window));
+                assertEquals(expected, Fade.computeAlpha(tick, window[0], window[1], window[2], window[3]), () -> "window " + windowName(window));
+            }
+        }
+    }
+
+    @Test
+    void bakedCurveWrapsAroundDays() {
+        for (int[] window : WINDOWS) {
+            Fade fade = new Fade(window[0], window[1], window[2], window[3], false);
+            for (int tick = 0; tick < Fade.DAY_LENGTH; tick += 7) {
+                float expected = originalAlpha(tick, window[0], window[1], window[2], window[3]);
+                assertEquals(expected, fade.getAlpha(tick + Fade.DAY_LENGTH), () -> "window " + windowName(window));
+                assertEquals(expected, fade.getAlpha(tick + 1000L * Fade.DAY_LENGTH), () -> "window " + windowName(window));
+            }
+        }
+    }
+
+    @Test
+    void negativeDayTimesKeepOriginalAlgorithm() {
+        for (int[] window : WINDOWS) {
+            Fade fade = new Fade(window[0], window[1], window[2], window[3], false);
+            for (int tick = -Fade.DAY_LENGTH + 1; tick < 0; tick += 13) {
+                float expected = originalAlpha(tick, window[0], window[1], window[2], window[3]);
+                assertEquals(expected, fade.getAlpha(tick), () -> "window " + windowName(window));
+            }
+        }
+    }
+
+    @Test
+    void visibleWithinMatchesEveryTickAhead() {
+        int[] lookaheads = {-1, 0, 1, 600, 1200, Fade.DAY_LENGTH - 1, Fade.DAY_LENGTH, Integer.MAX_VALUE};
+        for (int[] window : WINDOWS) {
+            Fade fade = new Fade(window[0], window[1], window[2], window[3], false);
+            for (int tick = 0; tick < Fade.DAY_LENGTH; tick += 97) {
+                for (int lookahead : lookaheads) {
+                    long dayTime = tick + 3L * Fade.DAY_LENGTH;
+                    assertEquals(isVisibleWithin(fade, dayTime, lookahead), fade.isVisibleWithin(dayTime, lookahead),
+                            () -> "window " + windowName(window) + " looking " + lookahead + " ticks ahead");
+                }
+            }
+        }
+    }
+
+    @Test
+    void neverVisibleFadeIsNeverVisibleWithin() {
+        // the fade in ends where the fade out ends, nothing of the day is visible
+        Fade fade = new Fade(6000, 6000, 6000, 6000, false);
+        for (int tick = 0; tick < Fade.DAY_LENGTH; tick += 100) {
+            assertEquals(0f, fade.getAlpha(tick));
+            assertFalse(fade.isVisibleWithin(tick, Integer.MAX_VALUE));
+        }
+    }
+
+    @Test
+    void alwaysOnIsFullyVisible() {
+        Fade fade = new Fade(1000, 2000, 10000, 11000, true);
+        for (int tick = 0; tick < Fade.DAY_LENGTH; tick += 100) {
+            assertEquals(1f, fade.getAlpha(tick));
+        }
+    }
+
+    /**
+     * Looks at every tick ahead, the way visibility was checked before it was baked.
+     */
+    private static boolean isVisibleWithin(Fade fade, long dayTime, int ticks) {
+        int span = Math.min(ticks, Fade.DAY_LENGTH - 1);
+        for (int tick = 0; tick <= span; tick++) {
+            if (fade.getAlpha(dayTime + tick) > 0f) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String windowName(int[] window) {
+        return window[0] + ", " + window[1] + ", " + window[2] + ", " + window[3];
+    }
+
+    /**
+     * The alpha calculation skyboxes ran every frame before curves were baked, kept verbatim.
+     */
+    private static float originalAlpha(int dayTime, int startFadeInTime, int endFadeInTime, int startFadeOutTime, int endFadeOutTime) {
+        int currentTime = dayTime % 24000;
+        int durationIn = ticksBetween(startFadeInTime, endFadeInTime);
+        int durationOut = ticksBetween(startFadeOutTime, endFadeOutTime);
+
+        int startFadeIn = startFadeInTime % 24000;
+        int endFadeIn = endFadeInTime % 24000;
+
+        if (endFadeIn < startFadeIn) {
+            endFadeIn += 24000;
+        }
+
+        int startFadeOut = startFadeOutTime % 24000;
+        int endFadeOut = endFadeOutTime % 24000;
+
+        if (startFadeOut < endFadeIn) {
+            startFadeOut += 24000;
+        }
+
+        if (endFadeOut < startFadeOut) {
+            endFadeOut += 24000;
+        }
+
+        int tempInTime = currentTime;
+
+        if (tempInTime < startFadeIn) {
+            tempInTime += 24000;
+        }
+
+        int tempFullTime = currentTime;
+
+        if (tempFullTime < endFadeIn) {
+            tempFullTime += 24000;
+        }
+
+        int tempOutTime = currentTime;
+
+        if (tempOutTime < startFadeOut) {
+            tempOutTime += 24000;
+        }
+
+        float maxPossibleAlpha;
+
+        if (startFadeIn < tempInTime && endFadeIn >= tempInTime) {
+            maxPossibleAlpha = 1f - (((float) (endFadeIn - tempInTime)) / durationIn); // fading in
+
+        } else if (endFadeIn < tempFullTime && startFadeOut >= tempFullTime) {
+            maxPossibleAlpha = 1f; // fully faded in
+
+        } else if (startFadeOut < tempOutTime && endFadeOut >= tempOutTime) {
+            maxPossibleAlpha = (float) (endFadeOut - tempOutTime) / durationOut; // fading out
+
+        } else {
+            maxPossibleAlpha = 0f; // default not showing
+        }
+        return maxPossibleAlpha;
+    }
+
+    private static int ticksBetween(int start, int end) {
+        if (end < start) end += 24000;
+        return end - start;
+    }
+}